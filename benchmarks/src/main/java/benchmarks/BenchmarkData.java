@@ -0,0 +1,81 @@
+package benchmarks;
+
+import Utils.ColumnarDataset;
+
+import java.util.Random;
+
+/**
+ * Class generating the seeded random data the benchmarks run on, so every run and every release measures the same
+ * inputs.
+ * @author gorosgobe
+ */
+final class BenchmarkData {
+
+    /** The seed of every generator*/
+    private static final long SEED = 42;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Generates a square matrix whose diagonal dominates its rows, so it is well conditioned and invertible.
+     * @param n the number of rows and columns
+     * @return the matrix
+     */
+    static double[][] squareMatrix(int n) {
+        Random random = new Random(SEED);
+        double[][] matrix = new double[n][n];
+
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                matrix[i][j] = random.nextDouble() * 2 - 1;
+            }
+            matrix[i][i] += n;
+        }
+
+        return matrix;
+    }
+
+    /**
+     * Generates a dataset of a noisy linear function of independent variables drawn uniformly from [-1, 1].
+     * @param n the number of points
+     * @param p the number of independent variables
+     * @return the dataset
+     */
+    static ColumnarDataset linear(int n, int p) {
+        Random random = new Random(SEED);
+        double[][] xs = new double[p][n];
+        double[] ys = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            double y = 1.0 + random.nextGaussian() * 0.1;
+            for (int j = 0; j < p; j++) {
+                xs[j][i] = random.nextDouble() * 2 - 1;
+                y += (j + 1) * xs[j][i];
+            }
+            ys[i] = y;
+        }
+
+        return new ColumnarDataset(xs, ys);
+    }
+
+    /**
+     * Generates a dataset of a noisy smooth function of a single independent variable drawn uniformly from [-2, 2],
+     * which polynomials of increasing degree approximate increasingly well.
+     * @param n the number of points
+     * @param seedOffset added to the seed, to draw test data independent from the training data
+     * @return the dataset
+     */
+    static ColumnarDataset curve(int n, int seedOffset) {
+        Random random = new Random(SEED + seedOffset);
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            xs[i] = random.nextDouble() * 4 - 2;
+            ys[i] = Math.sin(2 * xs[i]) + 0.5 * xs[i] * xs[i] + random.nextGaussian() * 0.05;
+        }
+
+        return new ColumnarDataset(new double[][] {xs}, ys);
+    }
+}
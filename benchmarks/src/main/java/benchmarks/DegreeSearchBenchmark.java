@@ -0,0 +1,69 @@
+package benchmarks;
+
+import Utils.ColumnarDataset;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import polynomialRegression.DegreeSearchResult;
+import polynomialRegression.DegreeSearchStrategy;
+import polynomialRegression.PolynomialBasis;
+import polynomialRegression.PolynomialDegreeSearch;
+import polynomialRegression.PolynomialRegression;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the search for the optimal polynomial degree on n training points, up to a maximum degree: on test data
+ * on the common fork/join pool, and by leave-one-out error on the training data alone, both in the Chebyshev basis.
+ * @author gorosgobe
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DegreeSearchBenchmark {
+
+    /** The number of training points, and of test points*/
+    @Param({"200", "10000"})
+    public int n;
+
+    /** The highest degree tried*/
+    @Param({"10", "40"})
+    public int maxDegree;
+
+    /** The training data*/
+    private ColumnarDataset trainingData;
+    /** The test data*/
+    private ColumnarDataset testData;
+
+    /**
+     * Generates the training and test data.
+     */
+    @Setup
+    public void setUp() {
+        trainingData = BenchmarkData.curve(n, 0);
+        testData = BenchmarkData.curve(n, 1);
+    }
+
+    @Benchmark
+    public DegreeSearchResult searchWithTestData() throws InterruptedException {
+        return new PolynomialDegreeSearch(trainingData, testData, ForkJoinPool.commonPool(),
+                DegreeSearchStrategy.maxDegree(maxDegree), PolynomialBasis.CHEBYSHEV).search();
+    }
+
+    @Benchmark
+    public DegreeSearchResult searchByPress() {
+        return PolynomialRegression.getOptimalPolynomialDegreeByPress(trainingData, maxDegree, PolynomialBasis.CHEBYSHEV);
+    }
+}
@@ -0,0 +1,112 @@
+package benchmarks;
+
+import Utils.ColumnarDataset;
+import linearRegression.MultipleLinearRegression;
+import linearRegression.SimpleLinearRegression;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of fitting simple and multiple linear regressions on n points with p independent variables, and of
+ * predicting every training point with them. The simple linear regression only uses the first independent variable.
+ * @author gorosgobe
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LinearRegressionBenchmark {
+
+    /** The number of training points*/
+    @Param({"1000", "100000"})
+    public int n;
+
+    /** The number of independent variables*/
+    @Param({"1", "4", "16"})
+    public int p;
+
+    /** The training data*/
+    private ColumnarDataset dataset;
+    /** The training data restricted to its first independent variable*/
+    private ColumnarDataset singleVariable;
+    /** The row-major block of the independent variables of the training points*/
+    private double[] rows;
+    /** The xs of the first independent variable*/
+    private double[] xs;
+    /** The array the predictions are written to*/
+    private double[] predictions;
+    /** The fitted simple linear regression*/
+    private SimpleLinearRegression simple;
+    /** The fitted multiple linear regression*/
+    private MultipleLinearRegression multiple;
+
+    /**
+     * Generates the training data and fits the regressions predicted with.
+     */
+    @Setup
+    public void setUp() {
+        dataset = BenchmarkData.linear(n, p);
+        xs = new double[n];
+        dataset.getXColumn(0).get(xs);
+        singleVariable = new ColumnarDataset(new double[][] {xs}, toArray(dataset));
+
+        rows = new double[n * p];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < p; j++) {
+                rows[i * p + j] = dataset.getX(i, j);
+            }
+        }
+        predictions = new double[n];
+
+        simple = new SimpleLinearRegression(singleVariable);
+        multiple = new MultipleLinearRegression(dataset);
+    }
+
+    /**
+     * Copies the dependent variables of a dataset.
+     * @param dataset the dataset
+     * @return the dependent variables
+     */
+    private static double[] toArray(ColumnarDataset dataset) {
+        double[] ys = new double[dataset.size()];
+        dataset.getYColumn().get(ys);
+        return ys;
+    }
+
+    @Benchmark
+    public SimpleLinearRegression fitSimple() {
+        return new SimpleLinearRegression(singleVariable);
+    }
+
+    @Benchmark
+    public double[] predictSimple() {
+        for (int i = 0; i < n; i++) {
+            predictions[i] = simple.getPrediction(xs[i]);
+        }
+        return predictions;
+    }
+
+    @Benchmark
+    public MultipleLinearRegression fitMultiple() {
+        return new MultipleLinearRegression(dataset);
+    }
+
+    @Benchmark
+    public double[] predictMultiple() {
+        multiple.predict(rows, predictions);
+        return predictions;
+    }
+}
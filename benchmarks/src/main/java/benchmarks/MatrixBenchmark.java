@@ -0,0 +1,89 @@
+package benchmarks;
+
+import Utils.DenseMatrix;
+import Utils.MatrixUtils;
+import Utils.QRDecomposition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the matrix kernels on n x n matrices: multiplication, both inverses, the QR decomposition and the back
+ * substitution solving Rb = QTy.
+ * @author gorosgobe
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MatrixBenchmark {
+
+    /** The number of rows and columns of the matrices*/
+    @Param({"16", "64", "256"})
+    public int n;
+
+    /** The matrix operated on*/
+    private double[][] matrix;
+    /** The matrix operated on, as a dense matrix*/
+    private DenseMatrix denseMatrix;
+    /** The R factor of the QR decomposition of the matrix*/
+    private double[][] r;
+    /** A column matrix to solve Rb = QTy for*/
+    private double[][] qty;
+
+    /**
+     * Generates the matrices.
+     */
+    @Setup
+    public void setUp() {
+        matrix = BenchmarkData.squareMatrix(n);
+        denseMatrix = DenseMatrix.fromArray(matrix);
+        r = new QRDecomposition(matrix).getR();
+        qty = new double[n][1];
+        for (int i = 0; i < n; i++) {
+            qty[i][0] = matrix[i][0];
+        }
+    }
+
+    @Benchmark
+    public double[][] multiply() {
+        return MatrixUtils.multiply(matrix, matrix);
+    }
+
+    @Benchmark
+    public DenseMatrix multiplyDense() {
+        return MatrixUtils.multiply(denseMatrix, denseMatrix);
+    }
+
+    @Benchmark
+    public double[][] inverse() {
+        return MatrixUtils.inverse(matrix);
+    }
+
+    @Benchmark
+    public double[][] naiveInverse() {
+        return MatrixUtils.naiveInverse(matrix);
+    }
+
+    @Benchmark
+    public QRDecomposition qrDecomposition() {
+        return new QRDecomposition(denseMatrix);
+    }
+
+    @Benchmark
+    public double[][] solveByBackSubstitution() {
+        return QRDecomposition.solveByBackSubstitution(r, qty);
+    }
+}
@@ -0,0 +1,85 @@
+package benchmarks;
+
+import Utils.ColumnarDataset;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import polynomialRegression.PolynomialBasis;
+import polynomialRegression.PolynomialRegression;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of fitting a polynomial regression of a given degree and basis on n points, and of predicting every
+ * training point with it.
+ * @author gorosgobe
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PolynomialRegressionBenchmark {
+
+    /** The number of training points*/
+    @Param({"1000", "100000"})
+    public int n;
+
+    /** The degree of the polynomial*/
+    @Param({"3", "10", "30"})
+    public int degree;
+
+    /** The basis the polynomial is fitted in*/
+    @Param({"MONOMIAL", "CHEBYSHEV"})
+    public PolynomialBasis basis;
+
+    /** The training data*/
+    private ColumnarDataset dataset;
+    /** The xs of the training data*/
+    private double[] xs;
+    /** The array the predictions are written to*/
+    private double[] predictions;
+    /** The fitted regression*/
+    private PolynomialRegression regression;
+
+    /**
+     * Generates the training data and fits the regression predicted with.
+     */
+    @Setup
+    public void setUp() {
+        dataset = BenchmarkData.curve(n, 0);
+        xs = new double[n];
+        dataset.getXColumn(0).get(xs);
+        predictions = new double[n];
+        regression = new PolynomialRegression(dataset, degree, basis);
+    }
+
+    @Benchmark
+    public PolynomialRegression fit() {
+        return new PolynomialRegression(dataset, degree, basis);
+    }
+
+    @Benchmark
+    public double[] predict() {
+        regression.predict(xs, predictions);
+        return predictions;
+    }
+
+    @Benchmark
+    public double predictEach() {
+        double sum = 0.0;
+        for (int i = 0; i < n; i++) {
+            sum += regression.getPrediction(xs[i]);
+        }
+        return sum;
+    }
+}
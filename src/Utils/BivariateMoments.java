@@ -0,0 +1,188 @@
+package Utils;
+
+/**
+ * Class representing the running first and second moments of a stream of (x, y) pairs: the count, both means, the sums of
+ * squared deviations from the means and the sum of the products of the deviations. Pairs are added one at a time with
+ * Welford's updates, which avoid the cancellation of the textbook sum of squares formula, and two sets of moments are
+ * combined with the pairwise formulas of Chan, Golub and LeVeque, so partial moments can be computed separately and merged.
+ * @author gorosgobe
+ */
+public class BivariateMoments {
+
+    /** The number of pairs added*/
+    private long count;
+    /** The mean of the xs*/
+    private double meanX;
+    /** The mean of the ys*/
+    private double meanY;
+    /** The sum of the squared deviations of the xs from their mean*/
+    private double sumOfSquaresX;
+    /** The sum of the squared deviations of the ys from their mean*/
+    private double sumOfSquaresY;
+    /** The sum of the products of the deviations of the xs and the ys from their means*/
+    private double sumOfProducts;
+
+    /**
+     * Constructs empty moments.
+     */
+    public BivariateMoments() {
+    }
+
+    /**
+     * Constructs moments with the supplied values.
+     * @param count the number of pairs
+     * @param meanX the mean of the xs
+     * @param meanY the mean of the ys
+     * @param sumOfSquaresX the sum of the squared deviations of the xs
+     * @param sumOfSquaresY the sum of the squared deviations of the ys
+     * @param sumOfProducts the sum of the products of the deviations
+     */
+    public BivariateMoments(long count, double meanX, double meanY, double sumOfSquaresX, double sumOfSquaresY,
+                            double sumOfProducts) {
+        this.count = count;
+        this.meanX = meanX;
+        this.meanY = meanY;
+        this.sumOfSquaresX = sumOfSquaresX;
+        this.sumOfSquaresY = sumOfSquaresY;
+        this.sumOfProducts = sumOfProducts;
+    }
+
+    /**
+     * Adds a pair to the moments.
+     * @param x the x of the pair
+     * @param y the y of the pair
+     */
+    public void add(double x, double y) {
+        count++;
+        double deltaX = x - meanX;
+        double deltaY = y - meanY;
+        meanX += deltaX / count;
+        meanY += deltaY / count;
+        double newDeltaY = y - meanY;
+        sumOfSquaresX += deltaX * (x - meanX);
+        sumOfSquaresY += deltaY * newDeltaY;
+        sumOfProducts += deltaX * newDeltaY;
+    }
+
+    /**
+     * Adds the pairs formed by the entries of both arrays in the range supplied.
+     * @param xs the xs of the pairs
+     * @param ys the ys of the pairs
+     * @param from the first index of the range, inclusive
+     * @param to the last index of the range, exclusive
+     */
+    public void addAll(double[] xs, double[] ys, int from, int to) {
+        for (int i = from; i < to; i++) {
+            add(xs[i], ys[i]);
+        }
+    }
+
+    /**
+     * Adds the pairs formed by the entries of both arrays.
+     * @param xs the xs of the pairs
+     * @param ys the ys of the pairs
+     */
+    public void addAll(double[] xs, double[] ys) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("Both arrays must have the same length");
+        }
+        addAll(xs, ys, 0, xs.length);
+    }
+
+    /**
+     * Merges the supplied moments into these ones, as if every pair of the other moments had been added to these.
+     * @param other the moments to merge, which are left untouched
+     */
+    public void merge(BivariateMoments other) {
+        if (other.count == 0) {
+            return;
+        }
+
+        if (count == 0) {
+            set(other);
+            return;
+        }
+
+        long total = count + other.count;
+        double deltaX = other.meanX - meanX;
+        double deltaY = other.meanY - meanY;
+        double weight = (double) count * other.count / total;
+
+        meanX += deltaX * other.count / total;
+        meanY += deltaY * other.count / total;
+        sumOfSquaresX += other.sumOfSquaresX + deltaX * deltaX * weight;
+        sumOfSquaresY += other.sumOfSquaresY + deltaY * deltaY * weight;
+        sumOfProducts += other.sumOfProducts + deltaX * deltaY * weight;
+        count = total;
+    }
+
+    /**
+     * Copies the supplied moments into these ones.
+     * @param other the moments to copy
+     */
+    private void set(BivariateMoments other) {
+        count = other.count;
+        meanX = other.meanX;
+        meanY = other.meanY;
+        sumOfSquaresX = other.sumOfSquaresX;
+        sumOfSquaresY = other.sumOfSquaresY;
+        sumOfProducts = other.sumOfProducts;
+    }
+
+    /**
+     * Copies these moments.
+     * @return an independent copy of these moments
+     */
+    public BivariateMoments copy() {
+        return new BivariateMoments(count, meanX, meanY, sumOfSquaresX, sumOfSquaresY, sumOfProducts);
+    }
+
+    /**
+     * Gets the number of pairs added.
+     * @return the number of pairs
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the mean of the xs.
+     * @return the mean of the xs
+     */
+    public double getMeanX() {
+        return meanX;
+    }
+
+    /**
+     * Gets the mean of the ys.
+     * @return the mean of the ys
+     */
+    public double getMeanY() {
+        return meanY;
+    }
+
+    /**
+     * Gets the sum of the squared deviations of the xs from their mean, as returned by <em>StatisticUtils.variance</em>.
+     * @return the sum of the squared deviations of the xs
+     */
+    public double getSumOfSquaresX() {
+        return sumOfSquaresX;
+    }
+
+    /**
+     * Gets the sum of the squared deviations of the ys from their mean, as returned by <em>StatisticUtils.variance</em>.
+     * @return the sum of the squared deviations of the ys
+     */
+    public double getSumOfSquaresY() {
+        return sumOfSquaresY;
+    }
+
+    /**
+     * Gets the sum of the products of the deviations of the xs and ys from their means, as returned by
+     * <em>StatisticUtils.covariance</em>.
+     * @return the sum of the products of the deviations
+     */
+    public double getSumOfProducts() {
+        return sumOfProducts;
+    }
+}
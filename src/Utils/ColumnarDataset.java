@@ -0,0 +1,265 @@
+package Utils;
+
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class representing a training or test dataset stored by columns: one column of doubles per independent variable plus
+ * one column for the dependent variable, instead of one object per point. Columns are DoubleBuffers, which wrap plain
+ * double arrays when the dataset is built from arrays, so no value is boxed. Slices are views sharing the same columns.
+ * @author gorosgobe
+ */
+public class ColumnarDataset {
+
+    /** The columns of the independent variables, row 0 of the dataset is at index <em>offset</em>*/
+    private final DoubleBuffer[] xColumns;
+    /** The column of the dependent variable, row 0 of the dataset is at index <em>offset</em>*/
+    private final DoubleBuffer yColumn;
+    /** The index in the columns of the first row of the dataset*/
+    private final int offset;
+    /** The number of rows of the dataset*/
+    private final int size;
+
+    /**
+     * Constructs a dataset over the supplied arrays, one per independent variable plus the dependent variable. The arrays
+     * are not copied.
+     * @param xColumns the columns of the independent variables
+     * @param yColumn the column of the dependent variable
+     */
+    public ColumnarDataset(double[][] xColumns, double[] yColumn) {
+        this(wrap(xColumns), DoubleBuffer.wrap(yColumn));
+    }
+
+    /**
+     * Constructs a dataset over the supplied buffers, one per independent variable plus the dependent variable. Each
+     * buffer's position is row 0 and its limit marks the end of the rows. The buffers are not copied, so direct buffers,
+     * such as memory-mapped ones, can be used.
+     * @param xColumns the columns of the independent variables
+     * @param yColumn the column of the dependent variable
+     */
+    public ColumnarDataset(DoubleBuffer[] xColumns, DoubleBuffer yColumn) {
+        this.xColumns = new DoubleBuffer[xColumns.length];
+        for (int j = 0; j < xColumns.length; j++) {
+            if (xColumns[j].remaining() != yColumn.remaining()) {
+                throw new IllegalArgumentException("All columns must have the same number of rows");
+            }
+            this.xColumns[j] = xColumns[j].slice();
+        }
+
+        this.yColumn = yColumn.slice();
+        this.offset = 0;
+        this.size = yColumn.remaining();
+    }
+
+    /**
+     * Constructs a view over the supplied columns.
+     * @param xColumns the columns of the independent variables
+     * @param yColumn the column of the dependent variable
+     * @param offset the index in the columns of the first row of the view
+     * @param size the number of rows of the view
+     */
+    private ColumnarDataset(DoubleBuffer[] xColumns, DoubleBuffer yColumn, int offset, int size) {
+        this.xColumns = xColumns;
+        this.yColumn = yColumn;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    /**
+     * Wraps every array in a DoubleBuffer.
+     * @param columns the arrays to wrap
+     * @return the buffers wrapping the arrays
+     */
+    private static DoubleBuffer[] wrap(double[][] columns) {
+        DoubleBuffer[] buffers = new DoubleBuffer[columns.length];
+
+        for (int j = 0; j < columns.length; j++) {
+            buffers[j] = DoubleBuffer.wrap(columns[j]);
+        }
+
+        return buffers;
+    }
+
+    /**
+     * Builds a dataset with a single independent variable from the supplied points.
+     * @param points the points to copy
+     * @return the dataset with the xs and ys of the points
+     */
+    public static ColumnarDataset fromPoints(List<Point> points) {
+        double[] xs = new double[points.size()];
+        double[] ys = new double[points.size()];
+
+        for (int i = 0; i < xs.length; i++) {
+            Point point = points.get(i);
+            xs[i] = point.getX();
+            ys[i] = point.getY();
+        }
+
+        return new ColumnarDataset(new double[][] {xs}, ys);
+    }
+
+    /**
+     * Builds a dataset from the supplied points with multiple independent variables.
+     * @param points the points to copy
+     * @return the dataset with the independent and dependent variables of the points
+     */
+    public static ColumnarDataset fromMultiplePoints(List<MultiplePoint> points) {
+        if (points.isEmpty()) {
+            throw new IllegalArgumentException("Empty list of points");
+        }
+
+        int width = points.get(0).getXs().size();
+        double[][] xColumns = new double[width][points.size()];
+        double[] ys = new double[points.size()];
+
+        for (int i = 0; i < ys.length; i++) {
+            MultiplePoint point = points.get(i);
+            List<Double> xs = point.getXs();
+
+            if (xs.size() != width) {
+                throw new IllegalArgumentException("All points supplied must have the same number of independent variables");
+            }
+
+            for (int j = 0; j < width; j++) {
+                xColumns[j][i] = xs.get(j);
+            }
+            ys[i] = point.getY();
+        }
+
+        return new ColumnarDataset(xColumns, ys);
+    }
+
+    /**
+     * Builds a list of points with the first independent variable and the dependent variable of each row.
+     * @return a new list of points
+     */
+    public List<Point> toPoints() {
+        List<Point> points = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            points.add(new Point(getX(i), getY(i)));
+        }
+
+        return points;
+    }
+
+    /**
+     * Builds a list of points with all the independent variables and the dependent variable of each row.
+     * @return a new list of multiple points
+     */
+    public List<MultiplePoint> toMultiplePoints() {
+        List<MultiplePoint> points = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            List<Double> xs = new ArrayList<>(xColumns.length);
+            for (int j = 0; j < xColumns.length; j++) {
+                xs.add(getX(i, j));
+            }
+            points.add(new MultiplePoint(xs, getY(i)));
+        }
+
+        return points;
+    }
+
+    /**
+     * Gets a view of the supplied range of rows, sharing the columns of this dataset.
+     * @param from the first row of the view
+     * @param length the number of rows of the view
+     * @return the view of the rows
+     */
+    public ColumnarDataset slice(int from, int length) {
+        if (from < 0 || length < 0 || from + length > size) {
+            throw new IllegalArgumentException("Slice out of bounds");
+        }
+
+        return new ColumnarDataset(xColumns, yColumn, offset + from, length);
+    }
+
+    /**
+     * Gets the first independent variable of a row.
+     * @param row the index of the row
+     * @return the first independent variable of the row
+     */
+    public double getX(int row) {
+        return getX(row, 0);
+    }
+
+    /**
+     * Gets an independent variable of a row.
+     * @param row the index of the row
+     * @param variable the index of the independent variable
+     * @return the independent variable of the row
+     */
+    public double getX(int row, int variable) {
+        checkRow(row);
+        return xColumns[variable].get(offset + row);
+    }
+
+    /**
+     * Gets the dependent variable of a row.
+     * @param row the index of the row
+     * @return the dependent variable of the row
+     */
+    public double getY(int row) {
+        checkRow(row);
+        return yColumn.get(offset + row);
+    }
+
+    /**
+     * Checks the supplied row is in the dataset, which matters for views over larger columns.
+     * @param row the index of the row
+     */
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " is not in the dataset");
+        }
+    }
+
+    /**
+     * Gets a read-only view of the column of an independent variable restricted to the rows of this dataset, with row 0
+     * at index 0.
+     * @param variable the index of the independent variable
+     * @return the view of the column
+     */
+    public DoubleBuffer getXColumn(int variable) {
+        return view(xColumns[variable]);
+    }
+
+    /**
+     * Gets a read-only view of the column of the dependent variable restricted to the rows of this dataset, with row 0 at
+     * index 0.
+     * @return the view of the column
+     */
+    public DoubleBuffer getYColumn() {
+        return view(yColumn);
+    }
+
+    /**
+     * Gets a read-only view of the rows of this dataset in the supplied column.
+     * @param column the column to view
+     * @return the view of the column
+     */
+    private DoubleBuffer view(DoubleBuffer column) {
+        DoubleBuffer duplicate = column.asReadOnlyBuffer();
+        duplicate.position(offset);
+        duplicate.limit(offset + size);
+        return duplicate.slice();
+    }
+
+    /**
+     * Gets the number of rows of the dataset.
+     * @return the number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of independent variables of each row.
+     * @return the number of independent variables
+     */
+    public int getNumberOfIndependentVariables() {
+        return xColumns.length;
+    }
+}
@@ -0,0 +1,315 @@
+package Utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class representing a binary columnar data file, read by memory-mapping its columns so they can be handed to the
+ * regressions without parsing or copying. The format, version 1, is little-endian throughout:
+ * <ul>
+ *     <li>the 4 ASCII bytes "RCOL" and the version as an int;</li>
+ *     <li>the number of rows as a long and the number of columns as an int;</li>
+ *     <li>for every column, its type as a byte (1 for doubles), the length of its name as a short and its name in
+ *     UTF-8;</li>
+ *     <li>zero padding up to a multiple of 8 bytes, after which the columns follow one another, each one being the
+ *     doubles of all the rows.</li>
+ * </ul>
+ * Every column is mapped on its own, so a single column can hold at most 2<sup>28</sup> - 1 rows; larger data should be
+ * split across files, or mapped a range of rows at a time.
+ * @author gorosgobe
+ */
+public class ColumnarFile {
+
+    /** The bytes every file starts with*/
+    private static final byte[] MAGIC = "RCOL".getBytes(StandardCharsets.US_ASCII);
+    /** The version of the format written*/
+    private static final int VERSION = 1;
+    /** The type code of a column of little-endian doubles*/
+    private static final byte DOUBLE_TYPE = 1;
+    /** The size in bytes of the buffer used to write the columns*/
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    /** The names of the columns, in file order*/
+    private final String[] names;
+    /** The mapped columns by name, in file order*/
+    private final Map<String, DoubleBuffer> columns;
+    /** The number of rows mapped*/
+    private final int rows;
+
+    /**
+     * Constructs a file with the supplied mapped columns.
+     * @param names the names of the columns, in file order
+     * @param columns the mapped columns by name
+     * @param rows the number of rows mapped
+     */
+    private ColumnarFile(String[] names, Map<String, DoubleBuffer> columns, int rows) {
+        this.names = names;
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    /**
+     * Writes the supplied dataset to a file, naming its independent variables x1, ..., xp and its dependent variable y.
+     * @param path the file to write
+     * @param dataset the dataset to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path path, ColumnarDataset dataset) throws IOException {
+        int p = dataset.getNumberOfIndependentVariables();
+        String[] names = new String[p + 1];
+        DoubleBuffer[] columns = new DoubleBuffer[p + 1];
+
+        for (int j = 0; j < p; j++) {
+            names[j] = "x" + (j + 1);
+            columns[j] = dataset.getXColumn(j);
+        }
+        names[p] = "y";
+        columns[p] = dataset.getYColumn();
+
+        write(path, names, columns);
+    }
+
+    /**
+     * Writes the supplied named columns to a file. Every column is written from its position to its limit, and all of
+     * them must have the same number of remaining entries.
+     * @param path the file to write
+     * @param names the names of the columns
+     * @param columns the columns to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path path, String[] names, DoubleBuffer[] columns) throws IOException {
+        if (names.length != columns.length || columns.length == 0) {
+            throw new IllegalArgumentException("There must be one name per column and at least one column");
+        }
+
+        long rows = columns[0].remaining();
+        byte[][] encodedNames = new byte[names.length][];
+        int headerSize = MAGIC.length + 4 + 8 + 4;
+
+        for (int j = 0; j < columns.length; j++) {
+            if (columns[j].remaining() != rows) {
+                throw new IllegalArgumentException("All columns must have the same number of rows");
+            }
+
+            encodedNames[j] = names[j].getBytes(StandardCharsets.UTF_8);
+            if (encodedNames[j].length > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Column name too long: " + names[j]);
+            }
+            headerSize += 1 + 2 + encodedNames[j].length;
+        }
+
+        int paddedHeaderSize = (headerSize + 7) & ~7;
+        ByteBuffer header = ByteBuffer.allocate(paddedHeaderSize).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC).putInt(VERSION).putLong(rows).putInt(columns.length);
+        for (byte[] name : encodedNames) {
+            header.put(DOUBLE_TYPE).putShort((short) name.length).put(name);
+        }
+        header.position(0);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header);
+
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            DoubleBuffer doubles = buffer.asDoubleBuffer();
+
+            for (DoubleBuffer column : columns) {
+                DoubleBuffer source = column.duplicate();
+                while (source.hasRemaining()) {
+                    int count = Math.min(source.remaining(), doubles.capacity());
+                    DoubleBuffer chunk = source.duplicate();
+                    chunk.limit(chunk.position() + count);
+
+                    doubles.clear();
+                    doubles.put(chunk);
+                    source.position(source.position() + count);
+
+                    buffer.position(0).limit(count * 8);
+                    writeFully(channel, buffer);
+                    buffer.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes every remaining byte of the buffer to the channel.
+     * @param channel the channel to write to
+     * @param buffer the bytes to write
+     * @throws IOException if the bytes cannot be written
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Opens a file and maps all of its rows.
+     * @param path the file to open
+     * @return the file with its columns mapped
+     * @throws IOException if the file cannot be read or is not a valid columnar file
+     */
+    public static ColumnarFile open(Path path) throws IOException {
+        return open(path, 0, -1);
+    }
+
+    /**
+     * Opens a file and maps the supplied range of its rows. The mappings stay valid after this method returns, and the
+     * operating system only reads the pages of the file that are accessed.
+     * @param path the file to open
+     * @param fromRow the first row to map
+     * @param rowCount the number of rows to map, or -1 for every row from <em>fromRow</em> onwards
+     * @return the file with the range of rows of its columns mapped
+     * @throws IOException if the file cannot be read or is not a valid columnar file
+     */
+    public static ColumnarFile open(Path path, long fromRow, long rowCount) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer fixed = readFully(channel, 0, MAGIC.length + 4 + 8 + 4);
+            byte[] magic = new byte[MAGIC.length];
+            fixed.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a columnar data file: " + path);
+            }
+
+            int version = fixed.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported columnar data file version " + version);
+            }
+
+            long totalRows = fixed.getLong();
+            int columnCount = fixed.getInt();
+            if (columnCount <= 0 || totalRows < 0) {
+                throw new IOException("Corrupt columnar data file: " + path);
+            }
+
+            long position = fixed.capacity();
+            String[] names = new String[columnCount];
+
+            for (int j = 0; j < columnCount; j++) {
+                ByteBuffer descriptor = readFully(channel, position, 3);
+                byte type = descriptor.get();
+                int length = descriptor.getShort() & 0xFFFF;
+                if (type != DOUBLE_TYPE) {
+                    throw new IOException("Unsupported column type " + type);
+                }
+
+                byte[] name = new byte[length];
+                readFully(channel, position + 3, length).get(name);
+                names[j] = new String(name, StandardCharsets.UTF_8);
+                position += 3 + length;
+            }
+
+            long dataStart = (position + 7) & ~7L;
+            long rows = rowCount < 0 ? totalRows - fromRow : rowCount;
+            if (fromRow < 0 || rows < 0 || fromRow + rows > totalRows) {
+                throw new IllegalArgumentException("Rows [" + fromRow + ", " + (fromRow + rows) + ") are not in the file");
+            }
+
+            if (rows * 8 > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many rows to map a column at once, map fewer rows at a time");
+            }
+
+            if (channel.size() < dataStart + columnCount * totalRows * 8) {
+                throw new IOException("Truncated columnar data file: " + path);
+            }
+
+            Map<String, DoubleBuffer> columns = new LinkedHashMap<>();
+            for (int j = 0; j < columnCount; j++) {
+                long columnStart = dataStart + (j * totalRows + fromRow) * 8;
+                DoubleBuffer column = channel.map(FileChannel.MapMode.READ_ONLY, columnStart, rows * 8)
+                        .order(ByteOrder.LITTLE_ENDIAN)
+                        .asDoubleBuffer();
+                if (columns.put(names[j], column) != null) {
+                    throw new IOException("Duplicate column name " + names[j]);
+                }
+            }
+
+            return new ColumnarFile(names, columns, (int) rows);
+        }
+    }
+
+    /**
+     * Reads the supplied number of bytes of the channel from the supplied position.
+     * @param channel the channel to read from
+     * @param position the position of the first byte to read
+     * @param length the number of bytes to read
+     * @return a little-endian buffer with the bytes read
+     * @throws IOException if the bytes cannot be read
+     */
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Truncated columnar data file");
+            }
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Builds a dataset over the mapped columns, without copying them.
+     * @param yColumn the name of the column of the dependent variable
+     * @param xColumns the names of the columns of the independent variables
+     * @return the dataset over the mapped columns
+     */
+    public ColumnarDataset toDataset(String yColumn, String... xColumns) {
+        DoubleBuffer[] xs = new DoubleBuffer[xColumns.length];
+        for (int j = 0; j < xColumns.length; j++) {
+            xs[j] = getColumn(xColumns[j]);
+        }
+
+        return new ColumnarDataset(xs, getColumn(yColumn));
+    }
+
+    /**
+     * Builds a dataset over the mapped columns, without copying them, using the last column as the dependent variable
+     * and every other column as an independent variable, as written by <em>write(Path, ColumnarDataset)</em>.
+     * @return the dataset over the mapped columns
+     */
+    public ColumnarDataset toDataset() {
+        return toDataset(names[names.length - 1], Arrays.copyOf(names, names.length - 1));
+    }
+
+    /**
+     * Gets a mapped column.
+     * @param name the name of the column
+     * @return a read-only view of the mapped column
+     */
+    public DoubleBuffer getColumn(String name) {
+        DoubleBuffer column = columns.get(name);
+        if (column == null) {
+            throw new IllegalArgumentException("No column named " + name);
+        }
+
+        return column.duplicate();
+    }
+
+    /**
+     * Gets the names of the columns, in file order.
+     * @return a copy of the names of the columns
+     */
+    public String[] getColumnNames() {
+        return Arrays.copyOf(names, names.length);
+    }
+
+    /**
+     * Gets the number of rows mapped.
+     * @return the number of rows mapped
+     */
+    public int getRowCount() {
+        return rows;
+    }
+}
@@ -0,0 +1,310 @@
+package Utils;
+
+/**
+ * Class representing a dense matrix stored in a single contiguous array of doubles. Entries are located through a row
+ * stride and a column stride, so the same class represents row-major and column-major layouts as well as views of a
+ * submatrix or of the transpose. Vectors are matrices with a single column.
+ * @author gorosgobe
+ */
+public class DenseMatrix {
+
+    /** The array holding the entries of the matrix*/
+    private final double[] data;
+    /** The number of rows of the matrix*/
+    private final int rows;
+    /** The number of columns of the matrix*/
+    private final int columns;
+    /** The index in <em>data</em> of the entry at (0, 0)*/
+    private final int offset;
+    /** The distance in <em>data</em> between two consecutive rows*/
+    private final int rowStride;
+    /** The distance in <em>data</em> between two consecutive columns*/
+    private final int columnStride;
+
+    /**
+     * Constructs a row-major matrix of zeros with the supplied dimensions.
+     * @param rows the number of rows
+     * @param columns the number of columns
+     */
+    public DenseMatrix(int rows, int columns) {
+        this(new double[rows * columns], rows, columns, 0, columns, 1);
+    }
+
+    /**
+     * Constructs a matrix over the supplied array. The array is not copied.
+     * @param data the array holding the entries
+     * @param rows the number of rows
+     * @param columns the number of columns
+     * @param offset the index of the entry at (0, 0)
+     * @param rowStride the distance between two consecutive rows
+     * @param columnStride the distance between two consecutive columns
+     */
+    public DenseMatrix(double[] data, int rows, int columns, int offset, int rowStride, int columnStride) {
+        if (rows < 0 || columns < 0) {
+            throw new IllegalArgumentException("Dimensions must be >= 0");
+        }
+
+        if (rows > 0 && columns > 0
+                && offset + (rows - 1) * rowStride + (columns - 1) * columnStride >= data.length) {
+            throw new IllegalArgumentException("Array is too small for the supplied dimensions and strides");
+        }
+
+        this.data = data;
+        this.rows = rows;
+        this.columns = columns;
+        this.offset = offset;
+        this.rowStride = rowStride;
+        this.columnStride = columnStride;
+    }
+
+    /**
+     * Wraps the supplied array as a row-major matrix. The array is not copied.
+     * @param data the entries, row after row
+     * @param rows the number of rows
+     * @param columns the number of columns
+     * @return the row-major matrix over the supplied array
+     */
+    public static DenseMatrix wrapRowMajor(double[] data, int rows, int columns) {
+        return new DenseMatrix(data, rows, columns, 0, columns, 1);
+    }
+
+    /**
+     * Wraps the supplied array as a column-major matrix. The array is not copied.
+     * @param data the entries, column after column
+     * @param rows the number of rows
+     * @param columns the number of columns
+     * @return the column-major matrix over the supplied array
+     */
+    public static DenseMatrix wrapColumnMajor(double[] data, int rows, int columns) {
+        return new DenseMatrix(data, rows, columns, 0, 1, rows);
+    }
+
+    /**
+     * Creates a column-major matrix of zeros with the supplied dimensions.
+     * @param rows the number of rows
+     * @param columns the number of columns
+     * @return the column-major matrix of zeros
+     */
+    public static DenseMatrix columnMajor(int rows, int columns) {
+        return wrapColumnMajor(new double[rows * columns], rows, columns);
+    }
+
+    /**
+     * Wraps the supplied array as a column vector. The array is not copied.
+     * @param values the entries of the vector
+     * @return the column vector over the supplied array
+     */
+    public static DenseMatrix columnVector(double[] values) {
+        return wrapRowMajor(values, values.length, 1);
+    }
+
+    /**
+     * Copies the supplied jagged matrix into a row-major matrix.
+     * @param matrix the matrix to copy
+     * @return the row-major copy of the matrix
+     */
+    public static DenseMatrix fromArray(double[][] matrix) {
+        int columns = matrix.length == 0 ? 0 : matrix[0].length;
+        DenseMatrix result = new DenseMatrix(matrix.length, columns);
+
+        for (int i = 0; i < matrix.length; i++) {
+            assert matrix[i].length == columns : "All rows must have the same length";
+            System.arraycopy(matrix[i], 0, result.data, i * columns, columns);
+        }
+
+        return result;
+    }
+
+    /**
+     * Creates the identity matrix of the supplied size.
+     * @param size the number of rows and columns
+     * @return the identity matrix
+     */
+    public static DenseMatrix identity(int size) {
+        DenseMatrix result = new DenseMatrix(size, size);
+
+        for (int i = 0; i < size; i++) {
+            result.data[i * size + i] = 1;
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets the entry at the supplied indices.
+     * @param row the row index
+     * @param column the column index
+     * @return the entry at (row, column)
+     */
+    public double get(int row, int column) {
+        return data[index(row, column)];
+    }
+
+    /**
+     * Sets the entry at the supplied indices.
+     * @param row the row index
+     * @param column the column index
+     * @param value the value to store
+     */
+    public void set(int row, int column, double value) {
+        data[index(row, column)] = value;
+    }
+
+    /**
+     * Gets the index in the backing array of the entry at the supplied indices.
+     * @param row the row index
+     * @param column the column index
+     * @return the index of the entry at (row, column)
+     */
+    public int index(int row, int column) {
+        assert row >= 0 && row < rows && column >= 0 && column < columns : "Index out of bounds";
+        return offset + row * rowStride + column * columnStride;
+    }
+
+    /**
+     * Is the matrix stored row after row with no gaps between the rows?
+     * @return true if the matrix is contiguous and row-major
+     */
+    public boolean isContiguousRowMajor() {
+        return columnStride == 1 && (rowStride == columns || rows <= 1);
+    }
+
+    /**
+     * Is the matrix stored column after column with no gaps between the columns?
+     * @return true if the matrix is contiguous and column-major
+     */
+    public boolean isContiguousColumnMajor() {
+        return rowStride == 1 && (columnStride == rows || columns <= 1);
+    }
+
+    /**
+     * Gets a view of the submatrix with the supplied bounds. The view shares the backing array of this matrix.
+     * @param fromRow the first row of the view
+     * @param rowCount the number of rows of the view
+     * @param fromColumn the first column of the view
+     * @param columnCount the number of columns of the view
+     * @return the view of the submatrix
+     */
+    public DenseMatrix view(int fromRow, int rowCount, int fromColumn, int columnCount) {
+        if (fromRow < 0 || fromColumn < 0 || rowCount < 0 || columnCount < 0
+                || fromRow + rowCount > rows || fromColumn + columnCount > columns) {
+            throw new IllegalArgumentException("View out of bounds");
+        }
+
+        return new DenseMatrix(data, rowCount, columnCount, offset + fromRow * rowStride + fromColumn * columnStride,
+                rowStride, columnStride);
+    }
+
+    /**
+     * Gets a view of the transpose of this matrix, obtained by swapping the strides. No entries are moved.
+     * @return the transposed view sharing the backing array of this matrix
+     */
+    public DenseMatrix transposedView() {
+        return new DenseMatrix(data, columns, rows, offset, columnStride, rowStride);
+    }
+
+    /**
+     * Copies the matrix into a new contiguous row-major matrix.
+     * @return the row-major copy
+     */
+    public DenseMatrix toRowMajor() {
+        if (isContiguousRowMajor()) {
+            double[] copy = new double[rows * columns];
+            System.arraycopy(data, offset, copy, 0, copy.length);
+            return wrapRowMajor(copy, rows, columns);
+        }
+
+        return MatrixUtils.transpose(transposedView());
+    }
+
+    /**
+     * Copies the matrix into a new contiguous column-major matrix.
+     * @return the column-major copy
+     */
+    public DenseMatrix toColumnMajor() {
+        DenseMatrix transposed = transposedView().toRowMajor();
+        return wrapColumnMajor(transposed.data, rows, columns);
+    }
+
+    /**
+     * Copies the matrix into a jagged matrix.
+     * @return the jagged copy of this matrix
+     */
+    public double[][] toArray() {
+        double[][] result = new double[rows][columns];
+
+        for (int i = 0; i < rows; i++) {
+            int rowIndex = offset + i * rowStride;
+            for (int j = 0; j < columns; j++) {
+                result[i][j] = data[rowIndex + j * columnStride];
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Copies the supplied column into a new array.
+     * @param column the index of the column
+     * @return the entries of the column
+     */
+    public double[] getColumn(int column) {
+        double[] result = new double[rows];
+        int index = offset + column * columnStride;
+
+        for (int i = 0; i < rows; i++) {
+            result[i] = data[index];
+            index += rowStride;
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets the array backing the matrix. Entries are located through <em>getOffset</em> and the strides.
+     * @return the backing array
+     */
+    public double[] getData() {
+        return data;
+    }
+
+    /**
+     * Gets the number of rows of the matrix.
+     * @return the number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Gets the number of columns of the matrix.
+     * @return the number of columns
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Gets the index in the backing array of the entry at (0, 0).
+     * @return the offset of the matrix
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Gets the distance in the backing array between two consecutive rows.
+     * @return the row stride
+     */
+    public int getRowStride() {
+        return rowStride;
+    }
+
+    /**
+     * Gets the distance in the backing array between two consecutive columns.
+     * @return the column stride
+     */
+    public int getColumnStride() {
+        return columnStride;
+    }
+}
@@ -0,0 +1,357 @@
+package Utils;
+
+/**
+ * Class representing an LU decomposition with partial pivoting, PA = LU, where P is a permutation matrix, L is lower
+ * triangular with 1s in its diagonal and U is upper triangular. Gaussian elimination is carried out in place on a
+ * row-major workspace which holds U on and above the diagonal and L below it. The workspace is reused when another matrix
+ * of the same size is decomposed through <em>decompose</em>.
+ * @author gorosgobe
+ */
+public class LUDecomposition {
+
+    /** Row-major workspace holding U on and above the diagonal and L below it*/
+    private double[] lu;
+    /** The size of the decomposed matrix*/
+    private int size;
+    /** The row of the original matrix that ended up at each row of the workspace*/
+    private int[] pivot;
+    /** 1 if an even number of rows was swapped, -1 otherwise*/
+    private int pivotSign;
+
+    /**
+     * Constructs an LU decomposition with a workspace for matrices of the supplied size. A matrix must be supplied through
+     * <em>decompose</em> before solving.
+     * @param size the number of rows and columns of the matrices to decompose
+     */
+    public LUDecomposition(int size) {
+        allocateWorkspace(size);
+    }
+
+    /**
+     * Performs an LU decomposition on a working copy of the matrix given.
+     * @param matrix the square matrix to decompose
+     */
+    public LUDecomposition(double[][] matrix) {
+        this(matrix.length);
+        decompose(matrix);
+    }
+
+    /**
+     * Performs an LU decomposition on a working copy of the dense matrix given.
+     * @param matrix the square matrix to decompose
+     */
+    public LUDecomposition(DenseMatrix matrix) {
+        this(matrix.getRows());
+        decompose(matrix);
+    }
+
+    /**
+     * Allocates the workspace for matrices of the supplied size.
+     * @param size the number of rows and columns of the matrices to decompose
+     */
+    private void allocateWorkspace(int size) {
+        this.size = size;
+        this.lu = new double[size * size];
+        this.pivot = new int[size];
+    }
+
+    /**
+     * Decomposes the supplied matrix, reusing the workspace if it has the same size as the previous one.
+     * @param matrix the square matrix to decompose
+     * @return this decomposition
+     */
+    public LUDecomposition decompose(double[][] matrix) {
+        checkSquare(matrix.length, matrix.length == 0 ? 0 : matrix[0].length);
+        if (matrix.length != size) {
+            allocateWorkspace(matrix.length);
+        }
+
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(matrix[i], 0, lu, i * size, size);
+        }
+
+        computeDecomposition();
+        return this;
+    }
+
+    /**
+     * Decomposes the supplied dense matrix, reusing the workspace if it has the same size as the previous one.
+     * @param matrix the square matrix to decompose
+     * @return this decomposition
+     */
+    public LUDecomposition decompose(DenseMatrix matrix) {
+        checkSquare(matrix.getRows(), matrix.getColumns());
+        if (matrix.getRows() != size) {
+            allocateWorkspace(matrix.getRows());
+        }
+
+        if (matrix.isContiguousRowMajor()) {
+            System.arraycopy(matrix.getData(), matrix.getOffset(), lu, 0, lu.length);
+        } else {
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    lu[i * size + j] = matrix.get(i, j);
+                }
+            }
+        }
+
+        computeDecomposition();
+        return this;
+    }
+
+    /**
+     * Checks the supplied dimensions are those of a square matrix.
+     * @param rows the number of rows
+     * @param columns the number of columns
+     */
+    private static void checkSquare(int rows, int columns) {
+        if (rows != columns) {
+            throw new IllegalArgumentException("Matrix has to have nxn entries");
+        }
+    }
+
+    /**
+     * Computes the decomposition in place through Gaussian elimination with partial pivoting. The elimination works on
+     * whole rows so every inner loop walks the workspace contiguously.
+     */
+    private void computeDecomposition() {
+        pivotSign = 1;
+        for (int i = 0; i < size; i++) {
+            pivot[i] = i;
+        }
+
+        for (int k = 0; k < size; k++) {
+            //selects the row with the largest entry in column k as the pivot row
+            int pivotRow = k;
+            double max = Math.abs(lu[k * size + k]);
+            for (int i = k + 1; i < size; i++) {
+                double value = Math.abs(lu[i * size + k]);
+                if (value > max) {
+                    max = value;
+                    pivotRow = i;
+                }
+            }
+
+            if (pivotRow != k) {
+                swapRows(k, pivotRow);
+                int temp = pivot[k];
+                pivot[k] = pivot[pivotRow];
+                pivot[pivotRow] = temp;
+                pivotSign = -pivotSign;
+            }
+
+            double diagonal = lu[k * size + k];
+            if (diagonal == 0.0) {
+                //singular, nothing to eliminate below this pivot
+                continue;
+            }
+
+            int pivotOffset = k * size;
+            for (int i = k + 1; i < size; i++) {
+                int rowOffset = i * size;
+                double factor = lu[rowOffset + k] / diagonal;
+                lu[rowOffset + k] = factor;
+
+                if (factor != 0.0) {
+                    for (int j = k + 1; j < size; j++) {
+                        lu[rowOffset + j] -= factor * lu[pivotOffset + j];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Swaps two rows of the workspace.
+     * @param row1 the index of the first row
+     * @param row2 the index of the second row
+     */
+    private void swapRows(int row1, int row2) {
+        int offset1 = row1 * size;
+        int offset2 = row2 * size;
+
+        for (int j = 0; j < size; j++) {
+            double temp = lu[offset1 + j];
+            lu[offset1 + j] = lu[offset2 + j];
+            lu[offset2 + j] = temp;
+        }
+    }
+
+    /**
+     * Is the decomposed matrix singular, that is, is there a zero in the diagonal of U?
+     * @return true if the decomposed matrix is singular
+     */
+    public boolean isSingular() {
+        for (int i = 0; i < size; i++) {
+            if (lu[i * size + i] == 0.0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Computes the determinant of the decomposed matrix as the signed product of the diagonal of U.
+     * @return the determinant of the decomposed matrix
+     */
+    public double getDeterminant() {
+        double determinant = pivotSign;
+
+        for (int i = 0; i < size; i++) {
+            determinant *= lu[i * size + i];
+        }
+
+        return determinant;
+    }
+
+    /**
+     * Solves Ax = b, where A is the decomposed matrix.
+     * @param b the right hand side, with one entry per row of A
+     * @return the solution x
+     */
+    public double[] solve(double[] b) {
+        if (b.length != size) {
+            throw new IllegalArgumentException("Right hand side must have one entry per row of the matrix");
+        }
+
+        checkNotSingular();
+
+        double[] x = new double[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = b[pivot[i]];
+        }
+
+        //forward substitution with L, which has 1s in its diagonal
+        for (int i = 1; i < size; i++) {
+            int rowOffset = i * size;
+            double value = x[i];
+            for (int j = 0; j < i; j++) {
+                value -= lu[rowOffset + j] * x[j];
+            }
+            x[i] = value;
+        }
+
+        //back substitution with U
+        for (int i = size - 1; i >= 0; i--) {
+            int rowOffset = i * size;
+            double value = x[i];
+            for (int j = i + 1; j < size; j++) {
+                value -= lu[rowOffset + j] * x[j];
+            }
+            x[i] = value / lu[rowOffset + i];
+        }
+
+        return x;
+    }
+
+    /**
+     * Solves AX = B for every column of B, where A is the decomposed matrix.
+     * @param b the right hand sides, with one row per row of A
+     * @return the solution X, with one column per column of B
+     */
+    public double[][] solve(double[][] b) {
+        return solve(DenseMatrix.fromArray(b)).toArray();
+    }
+
+    /**
+     * Solves AX = B for every column of the dense matrix B, where A is the decomposed matrix. All right hand sides are
+     * processed together, row by row.
+     * @param b the right hand sides, with one row per row of A
+     * @return the solution X, contiguous and row-major, with one column per column of B
+     */
+    public DenseMatrix solve(DenseMatrix b) {
+        if (b.getRows() != size) {
+            throw new IllegalArgumentException("Right hand side must have one row per row of the matrix");
+        }
+
+        int width = b.getColumns();
+        double[] x = new double[size * width];
+        for (int i = 0; i < size; i++) {
+            for (int c = 0; c < width; c++) {
+                x[i * width + c] = b.get(pivot[i], c);
+            }
+        }
+
+        checkNotSingular();
+        substitute(x, width);
+        return DenseMatrix.wrapRowMajor(x, size, width);
+    }
+
+    /**
+     * Computes the inverse of the decomposed matrix by solving against the identity.
+     * @return the inverse of the decomposed matrix
+     */
+    public double[][] inverse() {
+        checkNotSingular();
+
+        //the permuted identity, row i has its 1 at the column of the original row now at row i
+        double[] x = new double[size * size];
+        for (int i = 0; i < size; i++) {
+            x[i * size + pivot[i]] = 1.0;
+        }
+
+        substitute(x, size);
+        return DenseMatrix.wrapRowMajor(x, size, size).toArray();
+    }
+
+    /**
+     * Performs the forward and back substitutions in place on a row-major block of permuted right hand sides.
+     * @param x the row-major block of right hand sides, overwritten with the solutions
+     * @param width the number of right hand sides
+     */
+    private void substitute(double[] x, int width) {
+        for (int i = 1; i < size; i++) {
+            int rowOffset = i * size;
+            for (int j = 0; j < i; j++) {
+                double factor = lu[rowOffset + j];
+                if (factor != 0.0) {
+                    for (int c = 0; c < width; c++) {
+                        x[i * width + c] -= factor * x[j * width + c];
+                    }
+                }
+            }
+        }
+
+        for (int i = size - 1; i >= 0; i--) {
+            int rowOffset = i * size;
+            for (int j = i + 1; j < size; j++) {
+                double factor = lu[rowOffset + j];
+                if (factor != 0.0) {
+                    for (int c = 0; c < width; c++) {
+                        x[i * width + c] -= factor * x[j * width + c];
+                    }
+                }
+            }
+
+            double inverse = 1.0 / lu[rowOffset + i];
+            for (int c = 0; c < width; c++) {
+                x[i * width + c] *= inverse;
+            }
+        }
+    }
+
+    /**
+     * Checks the decomposed matrix is not singular.
+     */
+    private void checkNotSingular() {
+        if (isSingular()) {
+            throw new IllegalArgumentException("Matrix is singular");
+        }
+    }
+
+    /**
+     * Gets the size of the decomposed matrix.
+     * @return the number of rows and columns of the decomposed matrix
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the pivot vector, the row of the original matrix that ended up at each row of the decomposition.
+     * @return a copy of the pivot vector
+     */
+    public int[] getPivot() {
+        return pivot.clone();
+    }
+}
@@ -8,9 +8,12 @@ public class MatrixUtils {
 
     /**EPSILON constant used for double comparison and equality*/
     public static final double EPSILON = StatisticUtils.EPSILON;
+    /** Side of the square tiles used by the cache-blocked kernels*/
+    private static final int BLOCK_SIZE = 64;
 
     /**
-     * Multiplies two matrices.
+     * Multiplies two matrices. The loops run in i-k-j order so both the second matrix and the result are read row by
+     * row, instead of walking the second matrix column by column.
      * @param matrix1 first matrix
      * @param matrix2 second matrix
      * @return the resulting matrix from multiplying the first matrix with the second matrix.
@@ -21,9 +24,12 @@ public class MatrixUtils {
         double[][] result = new double[matrix1.length][matrix2[0].length];
 
         for (int i = 0; i < matrix1.length; i++) {
-            for (int j = 0; j < matrix2[0].length; j++) {
-                for (int k = 0; k < matrix1[0].length; k++) {
-                    result[i][j] = result[i][j] + matrix1[i][k] * matrix2[k][j];
+            double[] resultRow = result[i];
+            for (int k = 0; k < matrix1[0].length; k++) {
+                double factor = matrix1[i][k];
+                double[] row = matrix2[k];
+                for (int j = 0; j < resultRow.length; j++) {
+                    resultRow[j] += factor * row[j];
                 }
             }
         }
@@ -31,6 +37,54 @@ public class MatrixUtils {
         return result;
     }
 
+    /**
+     * Multiplies two dense matrices with a cache-blocked kernel. Operands which are not contiguous and row-major are
+     * copied into that layout first. The result is a contiguous row-major matrix.
+     * @param matrix1 first matrix
+     * @param matrix2 second matrix
+     * @return the resulting matrix from multiplying the first matrix with the second matrix.
+     */
+    public static DenseMatrix multiply(DenseMatrix matrix1, DenseMatrix matrix2) {
+        assert matrix1.getColumns() == matrix2.getRows() : "Dimensions must match";
+
+        DenseMatrix a = matrix1.isContiguousRowMajor() ? matrix1 : matrix1.toRowMajor();
+        DenseMatrix b = matrix2.isContiguousRowMajor() ? matrix2 : matrix2.toRowMajor();
+
+        int rows = a.getRows();
+        int inner = a.getColumns();
+        int columns = b.getColumns();
+        double[] aData = a.getData();
+        double[] bData = b.getData();
+        int aOffset = a.getOffset();
+        int bOffset = b.getOffset();
+        double[] result = new double[rows * columns];
+
+        //tiles are visited so that each entry of the result still accumulates its products in increasing k order
+        for (int ii = 0; ii < rows; ii += BLOCK_SIZE) {
+            int iEnd = Math.min(ii + BLOCK_SIZE, rows);
+            for (int kk = 0; kk < inner; kk += BLOCK_SIZE) {
+                int kEnd = Math.min(kk + BLOCK_SIZE, inner);
+                for (int jj = 0; jj < columns; jj += BLOCK_SIZE) {
+                    int jEnd = Math.min(jj + BLOCK_SIZE, columns);
+
+                    for (int i = ii; i < iEnd; i++) {
+                        int resultRow = i * columns;
+                        int aRow = aOffset + i * inner;
+                        for (int k = kk; k < kEnd; k++) {
+                            double factor = aData[aRow + k];
+                            int bRow = bOffset + k * columns;
+                            for (int j = jj; j < jEnd; j++) {
+                                result[resultRow + j] += factor * bData[bRow + j];
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return DenseMatrix.wrapRowMajor(result, rows, columns);
+    }
+
     /**
      * Transposes the given matrix.
      * @param matrix the matrix to transpose
@@ -39,19 +93,57 @@ public class MatrixUtils {
     public static double[][] transpose(double[][] matrix) {
         double[][] transposed = new double[matrix[0].length][matrix.length];
 
-        for (int i = 0; i < matrix.length; i++) {
-            for (int j = 0; j < matrix[0].length; j++) {
-                transposed[j][i] = matrix[i][j];
+        for (int ii = 0; ii < matrix.length; ii += BLOCK_SIZE) {
+            int iEnd = Math.min(ii + BLOCK_SIZE, matrix.length);
+            for (int jj = 0; jj < matrix[0].length; jj += BLOCK_SIZE) {
+                int jEnd = Math.min(jj + BLOCK_SIZE, matrix[0].length);
+                for (int i = ii; i < iEnd; i++) {
+                    for (int j = jj; j < jEnd; j++) {
+                        transposed[j][i] = matrix[i][j];
+                    }
+                }
             }
         }
 
         return transposed;
     }
 
+    /**
+     * Transposes the given dense matrix with a cache-blocked kernel. If only a transposed view is needed, see
+     * <em>DenseMatrix.transposedView</em>, which does not move any entries.
+     * @param matrix the matrix to transpose
+     * @return the transposed matrix, contiguous and row-major
+     */
+    public static DenseMatrix transpose(DenseMatrix matrix) {
+        int rows = matrix.getRows();
+        int columns = matrix.getColumns();
+        double[] data = matrix.getData();
+        int offset = matrix.getOffset();
+        int rowStride = matrix.getRowStride();
+        int columnStride = matrix.getColumnStride();
+        double[] transposed = new double[rows * columns];
+
+        for (int ii = 0; ii < rows; ii += BLOCK_SIZE) {
+            int iEnd = Math.min(ii + BLOCK_SIZE, rows);
+            for (int jj = 0; jj < columns; jj += BLOCK_SIZE) {
+                int jEnd = Math.min(jj + BLOCK_SIZE, columns);
+                for (int i = ii; i < iEnd; i++) {
+                    int rowIndex = offset + i * rowStride;
+                    for (int j = jj; j < jEnd; j++) {
+                        transposed[j * rows + i] = data[rowIndex + j * columnStride];
+                    }
+                }
+            }
+        }
+
+        return DenseMatrix.wrapRowMajor(transposed, columns, rows);
+    }
+
     /**
      * Inverts the given matrix using the QR decomposition based method. A = QR therefore A-1 = (QR)-1, so A-1 = R-1Q-1
      * which, given that Q is orthogonal (QT x Q = I, QT = Q-1), gives <em>A-1 = R-1QT</em>. A precondition is that the matrix
-     * is invertible.
+     * is invertible. R-1QT is obtained by solving RX = QTI column by column, applying the reflections of the decomposition
+     * to the identity, so neither Q nor R-1 is built.
      * @param matrix the matrix to invert
      * @return the inverted matrix
      */
@@ -67,137 +159,47 @@ public class MatrixUtils {
 
         //all inverses dealt with are 2x2 or bigger
         QRDecomposition decomposition = new QRDecomposition(matrix);
-
-        double[][] R = decomposition.getR();
-
-        //corrects numbers due to numerical stability, setting the lower part to zero
-        for (int i = 1; i < R.length; i++) {
-            for (int j = 0; j < i; j++) {
-                    R[i][j] = 0;
-            }
-        }
-
-        double[][] QT = MatrixUtils.transpose(decomposition.getQ());
-        double[][] RInverse = inverseForUpperTriangular(R);
-
-        return MatrixUtils.multiply(RInverse, QT);
+        return decomposition.solve(DenseMatrix.identity(matrix.length)).toArray();
     }
 
     /**
-     * Helper used by the <em>inverse</em> method. Inverts the upper triangular matrix R from the QR decomposition.
-     * @param matrix the upper triangular matrix to invert
+     * Inverts the given matrix through Gaussian elimination. The elimination is done in place, with partial pivoting, by an
+     * <em>LUDecomposition</em>, and the inverse is obtained by solving against the identity. A precondition is that the
+     * matrix given is invertible.
+     * @param matrix the matrix to invert
      * @return the inverted matrix
      */
-    private static double[][] inverseForUpperTriangular(double[][] matrix) {
+    public static double[][] naiveInverse(double[][] matrix) {
         assert matrix.length == matrix[0].length : "Matrix has to have nxn entries";
 
-        double[][] workingMatrix = new double[matrix.length][2 * matrix[0].length];
-
-        //initialises identity matrix in right part of working matrix
-        for (int i = 0; i < workingMatrix.length; i++) {
-            workingMatrix[i][i + workingMatrix[0].length / 2] = 1;
-        }
-
-        //initialises left part of working matrix to be the given matrix
-        for (int i = 0; i < matrix.length; i++) {
-            System.arraycopy(matrix[i], 0, workingMatrix[i], 0, matrix[0].length);
-        }
-
-        //creates ones in the diagonal
-        for (int i = 0; i < matrix.length; i++) {
-            workingMatrix = multiplyRow(workingMatrix, i, 1 / workingMatrix[i][i]);
-        }
-
-        //corrects numbers due to numerical stability, setting the lower part to zero
-        for (int i = 1; i < workingMatrix.length; i++) {
-            for (int j = 0; j < i; j++) {
-                    workingMatrix[i][j] = 0;
-            }
-        }
-
-        //puts the left part of working matrix in RREF (reduced row echelon form)
-        //starts by ignoring the first column as that one is already in RREF (matrix inputted was at least 2x2)
-        for (int i = 0; i < matrix.length; i++) {
-            for (int j = i + 1; j < matrix.length; j++) {
-                workingMatrix = subtractRows(workingMatrix, i, j, workingMatrix[i][j]);
-            }
-        }
-
-        //selects right part of working matrix
-        double[][] result = new double[matrix.length][matrix[0].length];
-
-        for (int i = 0; i < matrix.length; i++) {
-            for (int j = workingMatrix[0].length / 2; j < workingMatrix[0].length; j++) {
-                result[i][j - workingMatrix[0].length / 2] = workingMatrix[i][j];
-            }
-        }
-
-        return result;
+        return new LUDecomposition(matrix).inverse();
     }
 
     /**
-     * Naive implementation of the inverse of a matrix using the general method based on Gaussian Elimination. A precondition
-     * is that the matrix given is invertible.
+     * Inverts the given dense matrix. See <em>inverse(double[][])</em>.
      * @param matrix the matrix to invert
-     * @return the inverted matrix
+     * @return the inverted matrix, contiguous and row-major
      */
-    public static double[][] naiveInverse(double[][] matrix) {
-        assert matrix.length == matrix[0].length : "Matrix has to have nxn entries";
-
-        if (matrix.length == 1) {
-            double[][] result = new double[1][1];
-            result[0][0] = 1 / matrix[0][0];
-            return result;
-        }
-
-        //all inverses dealt with are 2x2 or bigger
-        //naive and not most efficient method for computing an inverse of a matrix
-        double[][] workingMatrix = new double[matrix.length][2 * matrix[0].length];
-
-        //initialises identity matrix in right part of working matrix
-        for (int i = 0; i < workingMatrix.length; i++) {
-                workingMatrix[i][i + workingMatrix[0].length / 2] = 1;
-        }
-
-        //initialises left part of working matrix to be the given matrix
-        for (int i = 0; i < matrix.length; i++) {
-            System.arraycopy(matrix[i], 0, workingMatrix[i], 0, matrix[0].length);
-        }
-
-        //converts matrix in upper triangular with 1s in diagonal
-        for (int i = 0; i < matrix.length; i++) {
-            for (int j = i + 1; j < matrix.length; j++) {
-                workingMatrix = subtractRows(workingMatrix, j, i, workingMatrix[j][i] / workingMatrix[i][i]);
-            }
-        }
-
-        for (int i = 0; i < matrix.length; i++) {
-            workingMatrix = multiplyRow(workingMatrix, i, 1 / workingMatrix[i][i]);
-        }
-
-        //puts the left part of working matrix in RREF (reduced row echelon form)
-        //starts by ignoring the first column as that one is already in RREF (matrix inputted was at least 2x2)
-        for (int i = 0; i < matrix.length; i++) {
-            for (int j = i + 1; j < matrix.length; j++) {
-                workingMatrix = subtractRows(workingMatrix, i, j, workingMatrix[i][j]);
-            }
-        }
+    public static DenseMatrix inverse(DenseMatrix matrix) {
+        assert matrix.getRows() == matrix.getColumns() : "Matrix has to have nxn entries";
 
-        //selects right part of working matrix
-        double[][] result = new double[matrix.length][matrix[0].length];
+        return new QRDecomposition(matrix).solve(DenseMatrix.identity(matrix.getRows()));
+    }
 
-        for (int i = 0; i < matrix.length; i++) {
-            for (int j = workingMatrix[0].length / 2; j < workingMatrix[0].length; j++) {
-                result[i][j - workingMatrix[0].length / 2] = workingMatrix[i][j];
-            }
-        }
+    /**
+     * Inverts the given dense matrix. See <em>naiveInverse(double[][])</em>.
+     * @param matrix the matrix to invert
+     * @return the inverted matrix, contiguous and row-major
+     */
+    public static DenseMatrix naiveInverse(DenseMatrix matrix) {
+        assert matrix.getRows() == matrix.getColumns() : "Matrix has to have nxn entries";
 
-        return result;
+        return new LUDecomposition(matrix).solve(DenseMatrix.identity(matrix.getRows()));
     }
 
     /**
-     * Helper method for the invert functions that subtracts a row multiplied by a factor from another row of the supplied
-     * matrix
+     * Subtracts a row multiplied by a factor from another row of the supplied matrix. The supplied matrix is left untouched
+     * and a modified copy is returned, so elimination loops should use <em>LUDecomposition</em> instead
      * @param matrix the matrix to get the rows from
      * @param firstRow the index of the first row
      * @param secondRow the index of the second row
@@ -282,6 +284,27 @@ public class MatrixUtils {
         return areMatricesApproximatelyEqual(matrix1, matrix2, EPSILON);
     }
 
+    /**
+     * Method that compares two dense matrices to check equality, regardless of their layouts.
+     * @param matrix1 the first matrix
+     * @param matrix2 the second matrix
+     * @param epsilon the epsilon to use for comparison
+     * @return are both matrices equal within the epsilon given?
+     */
+    public static boolean areMatricesApproximatelyEqual(DenseMatrix matrix1, DenseMatrix matrix2, double epsilon) {
+        assert matrix1.getRows() == matrix2.getRows() && matrix1.getColumns() == matrix2.getColumns()
+                : "Dimensions must be equal";
+
+        for (int i = 0; i < matrix1.getRows(); i++) {
+            for (int j = 0; j < matrix1.getColumns(); j++) {
+                if (!StatisticUtils.isApproxEqual(matrix1.get(i, j), matrix2.get(i, j), epsilon)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     /**
      * Prints the given matrix. Used for debugging
      * @param matrix the matrix to print
@@ -0,0 +1,131 @@
+package Utils;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Class holding the current version of a fitted model, shared by the threads making predictions, which can be retrained
+ * in the background and swapped in atomically. The regressions and predictors only have final fields, so a model is
+ * immutable once constructed: readers get the current one with a single volatile read, never block, and never see one
+ * partially built. Retraining runs on an executor and installs the new model when it finishes, unless a retraining
+ * started later has already installed a newer one; if it fails, the current model is kept.
+ * @param <T> the type of the model held
+ * @author gorosgobe
+ */
+public class ModelHolder<T> {
+
+    /** The current model with the generation of the retraining or replacement that installed it*/
+    private final AtomicReference<Version<T>> current;
+    /** The generation of the last retraining or replacement started*/
+    private final AtomicLong generations = new AtomicLong();
+    /** The executor running the retrainings*/
+    private final ExecutorService executor;
+
+    /**
+     * Class representing a model installed in the holder, with the generation of the retraining that built it.
+     * @param <T> the type of the model
+     */
+    private static final class Version<T> {
+
+        /** The model installed*/
+        private final T model;
+        /** The generation of the retraining or replacement that installed the model, 0 for the initial model*/
+        private final long generation;
+
+        /**
+         * Constructs a version of the model.
+         * @param model the model installed
+         * @param generation the generation of the retraining that built the model
+         */
+        private Version(T model, long generation) {
+            this.model = model;
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * Constructs a holder with the supplied model, retraining on the common fork/join pool.
+     * @param model the initial model
+     */
+    public ModelHolder(T model) {
+        this(model, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a holder with the supplied model, retraining on the supplied executor.
+     * @param model the initial model
+     * @param executor the executor running the retrainings
+     */
+    public ModelHolder(T model, ExecutorService executor) {
+        if (model == null) {
+            throw new IllegalArgumentException("Model must not be null");
+        }
+
+        this.current = new AtomicReference<>(new Version<>(model, 0));
+        this.executor = executor;
+    }
+
+    /**
+     * Gets the current model, without blocking.
+     * @return the current model
+     */
+    public T get() {
+        return current.get().model;
+    }
+
+    /**
+     * Replaces the current model with the supplied one, which also supersedes every retraining already started.
+     * @param model the new model
+     */
+    public void set(T model) {
+        if (model == null) {
+            throw new IllegalArgumentException("Model must not be null");
+        }
+
+        install(new Version<>(model, generations.incrementAndGet()));
+    }
+
+    /**
+     * Retrains the model in the background, installing the result once it is built unless a newer model has been
+     * installed in the meantime. Predictions keep using the current model until then.
+     * @param training the task building the new model
+     * @return the future of the new model, which fails with the exception of the training if it fails
+     */
+    public Future<T> retrain(Callable<? extends T> training) {
+        long generation = generations.incrementAndGet();
+
+        return executor.submit(() -> {
+            T model = training.call();
+            if (model == null) {
+                throw new IllegalStateException("Training built no model");
+            }
+
+            install(new Version<>(model, generation));
+            return model;
+        });
+    }
+
+    /**
+     * Installs the supplied version unless the current one is newer.
+     * @param version the version to install
+     */
+    private void install(Version<T> version) {
+        Version<T> installed = current.get();
+        while (installed.generation < version.generation && !current.compareAndSet(installed, version)) {
+            installed = current.get();
+        }
+    }
+
+    /**
+     * Gets the generation of the current model: 0 for the initial model, and otherwise the number of retrainings and
+     * replacements started up to the one that installed it.
+     * @return the generation of the current model
+     */
+    public long getGeneration() {
+        return current.get().generation;
+    }
+}
@@ -0,0 +1,21 @@
+package Utils;
+
+/**
+ * Interface of a fitted model that only predicts, detached from the training data and from the way it was fitted.
+ * @author gorosgobe
+ */
+public interface Predictor {
+
+    /**
+     * Gets a prediction given the independent variables.
+     * @param independentVars the independent variables
+     * @return the prediction of the model
+     */
+    double getPrediction(double... independentVars);
+
+    /**
+     * Gets the number of independent variables the model predicts from.
+     * @return the number of independent variables
+     */
+    int getNumberOfIndependentVariables();
+}
@@ -1,26 +1,32 @@
 package Utils;
 
-
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
- * Class representing a QR decomposition. This class uses the Gram-Schmidt method. For more information on the algorithm
- * used, see: http://www.math.ucla.edu/~yanovsky/Teaching/Math151B/handouts/GramSchmidt.pdf
+ * Class representing a QR decomposition. This class uses Householder reflections, applied in place to a column-major
+ * working copy of the matrix: after the factorization the entries above the diagonal hold R and the entries from the
+ * diagonal downwards hold the Householder vectors, so no vector is allocated per column. Q and R are only built when
+ * requested. For more information on the algorithm used, see: https://en.wikipedia.org/wiki/Householder_transformation
  * @author gorosgobe
  */
 public class QRDecomposition {
 
     /** The matrix to decompose*/
     private double[][] matrix;
+    /** The matrix to decompose, when supplied as a DenseMatrix*/
+    private final DenseMatrix denseMatrix;
+    /** Column-major working array with R above the diagonal and the Householder vectors from the diagonal downwards*/
+    private final double[] qr;
+    /** The number of rows of the matrix to decompose*/
+    private final int rows;
+    /** The number of columns of the matrix to decompose*/
+    private final int columns;
+    /** The diagonal of R, before normalising its signs*/
+    private final double[] rDiagonal;
     /** The orthogonal matrix from the decomposition*/
     private double[][] Q;
     /** The upper triangular matrix from the decomposition*/
     private double[][] R;
-    /** A map containing the values used in the Gram-Schmidt algorithm for the orthogonal matrix. Used for memoization*/
-    private Map<Integer, double[][]> EMap;
-    /** A map containing the intermediate values used in the Gram-Schmidt algorithm for the orthogonal matrix. Used for memoization*/
-    private Map<Integer, double[][]> UMap;
 
     /**
      * Performs a QR decomposition on the matrix given
@@ -29,251 +35,339 @@ public class QRDecomposition {
     public QRDecomposition(double[][] matrix) {
         //pre: matrix is invertible
         this.matrix = matrix;
-        allocateMatrices();
-        this.EMap = new HashMap<>();
-        this.UMap = new HashMap<>();
+        this.denseMatrix = null;
+        this.rows = matrix.length;
+        this.columns = matrix[0].length;
+        this.qr = new double[rows * columns];
+        this.rDiagonal = new double[columns];
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                qr[j * rows + i] = matrix[i][j];
+            }
+        }
+
         computeDecomposition();
     }
 
     /**
-     * Allocates space for the Q and R matrices from the decomposition
+     * Performs a QR decomposition on a working copy of the dense matrix given
+     * @param matrix the matrix to decompose
      */
-    private void allocateMatrices() {
-        this.Q = new double[matrix.length][matrix[0].length];
-        this.R = new double[matrix[0].length][matrix[0].length];
+    public QRDecomposition(DenseMatrix matrix) {
+        this(matrix, false);
     }
 
     /**
-     * Computes the QR decomposition
+     * Performs a QR decomposition on the dense matrix given. If <em>inPlace</em> is true and the matrix is contiguous and
+     * column-major, its backing array is used as the working array and is overwritten by the factorization, which avoids
+     * copying matrices that are only built to be decomposed. Otherwise a working copy is made.
+     * @param matrix the matrix to decompose
+     * @param inPlace can the backing array of the matrix be overwritten?
      */
-    private void computeDecomposition() {
-
-        for (int i = 0; i < Q[0].length; i++) {
-            putQColumnVectorAtIndex(getEVector(i), i);
-        }
-
-        for (int i = 0; i < R.length; i++) {
-            for (int j = 0; j < R[0].length; j++) {
-                putATimesEValueAtIndices(multiplyDotProductVectors(getEVector(i), getColumnVector(matrix, j)), i, j);
+    public QRDecomposition(DenseMatrix matrix, boolean inPlace) {
+        this.denseMatrix = matrix;
+        this.rows = matrix.getRows();
+        this.columns = matrix.getColumns();
+        this.rDiagonal = new double[columns];
+
+        if (matrix.isContiguousColumnMajor()) {
+            if (inPlace && matrix.getOffset() == 0) {
+                this.qr = matrix.getData();
+            } else {
+                this.qr = new double[rows * columns];
+                System.arraycopy(matrix.getData(), matrix.getOffset(), qr, 0, qr.length);
             }
+        } else {
+            this.qr = matrix.toColumnMajor().getData();
         }
 
+        computeDecomposition();
     }
 
     /**
-     * Computes the L2 (Euclidean) norm of a column vector
-     * @param columnVector the column vector to compute the norm of
-     * @return the norm of the column vector
+     * Computes the QR decomposition
      */
-    private double computeNorm(double[][] columnVector) {
-        double value = 0.0;
-        for (int i = 0; i < columnVector.length; i++) {
-            value += Math.pow(columnVector[i][0], 2);
-        }
+    private void computeDecomposition() {
+        for (int k = 0; k < columns; k++) {
+            rDiagonal[k] = householderColumn(qr, k * rows + k, rows - k);
 
-        return Math.sqrt(value);
+            for (int j = k + 1; j < columns; j++) {
+                applyHouseholder(qr, k * rows + k, qr, j * rows + k, rows - k);
+            }
+        }
     }
 
     /**
-     * Gets the column vector given by the index supplied from the matrix given
-     * @param matrix the matrix to get the column vector from
-     * @param index the index of the column vector
-     * @return the column vector specified by the index in the matrix
+     * Turns the supplied column segment into a Householder vector v, scaled so that its first entry is 1 + |x|/norm, such
+     * that (I - v vT / v0) x = (-norm, 0, ..., 0), where x is the original segment. A zero segment is left untouched.
+     * @param data the array holding the segment
+     * @param start the index of the first entry of the segment
+     * @param length the number of entries in the segment
+     * @return the entry of R on the diagonal, that is, minus the signed norm used
      */
-    private static double[][] getColumnVector(double[][] matrix, int index) {
-        double[][] columnVector = new double[matrix.length][1];
+    public static double householderColumn(double[] data, int start, int length) {
+        double norm = computeNorm(data, start, length);
+
+        if (norm == 0.0) {
+            return 0.0;
+        }
+
+        if (data[start] < 0) {
+            norm = -norm;
+        }
 
-        for (int i = 0; i < matrix.length; i++) {
-            columnVector[i][0] = matrix[i][index];
+        double inverse = 1.0 / norm;
+        for (int i = start; i < start + length; i++) {
+            data[i] *= inverse;
         }
+        data[start] += 1.0;
 
-        return columnVector;
+        return -norm;
     }
 
     /**
-     * Divides every component of a column vector by the divisor given.
-     * @param vector the column vector to divide each component of
-     * @param divisor the divisor to divide each component by
-     * @return the column vector with its components divided by the divisor supplied
+     * Applies the Householder reflection held in a column segment to another column segment of the same length.
+     * @param householder the array holding the Householder vector
+     * @param householderStart the index of the first entry of the Householder vector
+     * @param target the array holding the segment to reflect
+     * @param targetStart the index of the first entry of the segment to reflect
+     * @param length the number of entries in both segments
      */
-    private static double[][] divideColumnVector(double[][] vector, double divisor) {
+    public static void applyHouseholder(double[] householder, int householderStart, double[] target, int targetStart, int length) {
+        double pivot = householder[householderStart];
 
-        double[][] result = new double[vector.length][vector[0].length];
+        if (pivot == 0.0) {
+            //zero column, the reflection is the identity
+            return;
+        }
 
-        for (int i = 0; i < vector.length; i++) {
-            result[i][0] = vector[i][0] / divisor;
+        double dot = 0.0;
+        for (int i = 0; i < length; i++) {
+            dot += householder[householderStart + i] * target[targetStart + i];
+        }
+
+        double factor = -dot / pivot;
+        for (int i = 0; i < length; i++) {
+            target[targetStart + i] += factor * householder[householderStart + i];
         }
-        return result;
     }
 
     /**
-     * Computes the dot product of two column vectors
-     * @param vector1 the first column vector
-     * @param vector2 the second column vector
-     * @return the dot product of both vectors
+     * Computes the L2 (Euclidean) norm of a column segment. The plain sum of squares is used unless it overflows or
+     * underflows, in which case the entries are rescaled by the largest one.
+     * @param data the array holding the segment
+     * @param start the index of the first entry of the segment
+     * @param length the number of entries in the segment
+     * @return the norm of the segment
      */
-    private static double multiplyDotProductVectors(double[][] vector1, double[][] vector2) {
-        assert vector1.length == vector2.length && vector1[0].length == vector2[0].length : "Dimensions must be equal";
-        double result = 0.0;
+    static double computeNorm(double[] data, int start, int length) {
+        double value = 0.0;
+        for (int i = start; i < start + length; i++) {
+            value += data[i] * data[i];
+        }
 
-        for (int i = 0; i < vector1.length; i++) {
-            result += vector1[i][0] * vector2[i][0];
+        if (value > 0.0 && value < Double.POSITIVE_INFINITY && value >= Double.MIN_NORMAL) {
+            return Math.sqrt(value);
         }
 
-        return result;
-    }
+        double max = 0.0;
+        for (int i = start; i < start + length; i++) {
+            max = Math.max(max, Math.abs(data[i]));
+        }
 
-    /**
-     * Multiplies the given column vector by the supplied scalar
-     * @param vector the column vector to multiply
-     * @param scalar the scalar to multiply the vector by
-     * @return the scaled column vector
-     */
-    private static double[][] multiplyVectorByScalar(double[][] vector, double scalar) {
-        double[][] result = new double[vector.length][vector[0].length];
+        if (max == 0.0 || Double.isInfinite(max) || Double.isNaN(max)) {
+            return max;
+        }
 
-        for (int i = 0; i < vector.length; i++) {
-            result[i][0] = vector[i][0] * scalar;
+        double scaled = 0.0;
+        for (int i = start; i < start + length; i++) {
+            double entry = data[i] / max;
+            scaled += entry * entry;
         }
-        return result;
+
+        return max * Math.sqrt(scaled);
     }
 
     /**
-     * Adds to column vectors.
-     * @param vector1 the first column vector
-     * @param vector2 the second column vector
-     * @return the column vector resulting from adding both supplied vectors
+     * Builds the thin orthogonal matrix Q by applying the Householder reflections, from the last to the first, to the
+     * leading columns of the identity. Columns are negated where needed so that R has a non-negative diagonal.
      */
-    private static double[][] addVectors(double[][] vector1, double[][] vector2) {
-        assert vector1.length == vector2.length && vector1[0].length == vector2[0].length : "Dimensions must be equal";
-        double[][] result = new double[vector1.length][vector1[0].length];
+    private void computeQ() {
+        double[] q = new double[rows * columns];
 
-        for (int i = 0; i < vector1.length; i++) {
-            result[i][0] = vector1[i][0] + vector2[i][0];
+        for (int j = 0; j < columns; j++) {
+            q[j * rows + j] = 1.0;
         }
 
-        return result;
+        for (int k = columns - 1; k >= 0; k--) {
+            for (int j = k; j < columns; j++) {
+                applyHouseholder(qr, k * rows + k, q, j * rows + k, rows - k);
+            }
+        }
+
+        double[][] result = new double[rows][columns];
+        for (int j = 0; j < columns; j++) {
+            double sign = rDiagonal[j] < 0 ? -1.0 : 1.0;
+            for (int i = 0; i < rows; i++) {
+                result[i][j] = sign * q[j * rows + i];
+            }
+        }
+
+        this.Q = result;
     }
 
     /**
-     * Subtracts two column vectors
-     * @param vector1 the first column vector
-     * @param vector2 the second column vector
-     * @return the column vector resulting from subtracting both supplied vectors
+     * Builds the upper triangular matrix R from the working array. Rows are negated where needed so that the diagonal is
+     * non-negative, matching the signs of <em>getQ</em>.
      */
-    private static double[][] subtractVectors(double[][] vector1, double[][] vector2) {
-        assert vector1.length == vector2.length && vector1[0].length == vector2[0].length : "Dimensions must be equal";
-        double[][] result = new double[vector1.length][vector1[0].length];
-
-        for (int i = 0; i < vector1.length; i++) {
-            result[i][0] = vector1[i][0] - vector2[i][0];
+    private void computeR() {
+        double[][] result = new double[columns][columns];
+
+        for (int i = 0; i < columns; i++) {
+            double sign = rDiagonal[i] < 0 ? -1.0 : 1.0;
+            result[i][i] = sign * rDiagonal[i];
+            for (int j = i + 1; j < columns; j++) {
+                result[i][j] = sign * qr[j * rows + i];
+            }
         }
 
-        return result;
+        this.R = result;
     }
 
     /**
-     * Computes the column vector at the supplied index for the Q matrix, which is also used to compute the entries of the
-     * R matrix. This is done by the Gram-Schmidt algorithm.
-     * @param index the index of the column vector of the Q matrix that we want to obtain
-     * @return the column vector of the Q matrix at the supplied index
+     * Solves the least squares problem min ||Ab - y|| for the supplied response vector. The Householder reflections are
+     * applied directly to a copy of the response to obtain QTy, and Rb = QTy is then solved by back substitution, so Q
+     * and its transpose are never built.
+     * @param response the response vector, with one entry per row of the decomposed matrix
+     * @return the coefficient vector b
      */
-    private double[][] getEVector(int index) {
-        if (EMap.containsKey(index)) {
-            return copyOf(EMap.get(index));
-        } else {
-            double[][] UVector = getIntermediateUVector(index);
-            double[][] EVector = divideColumnVector(UVector, computeNorm(UVector));
-            EMap.put(index, EVector);
-            return EVector;
+    public double[] solve(double[] response) {
+        if (response.length != rows) {
+            throw new IllegalArgumentException("Response must have one entry per row of the decomposed matrix");
         }
+
+        double[] qty = Arrays.copyOf(response, rows);
+        applyQTranspose(qty, 0);
+
+        return backSubstitute(qty, 0);
     }
 
     /**
-     * Computes the intermediate vector used to compute the column vectors in the Q matrix.
-     * @param index the index of the intermediate vector to compute
-     * @return the intermediate vector used to compute the column vectors in the Q matrix with the specified index
+     * Solves the least squares problem min ||AB - Y|| for every column of the supplied response matrix, without building
+     * Q. See <em>solve(double[])</em>.
+     * @param responseMatrix the response matrix, with one row per row of the decomposed matrix
+     * @return the coefficient matrix B, with one column per column of the response matrix
      */
-    private double[][] getIntermediateUVector(int index) {
-        if (index == 0) {
-            //return a1
-            if (UMap.containsKey(index)) {
-                return copyOf(UMap.get(index));
-            }
+    public double[][] solve(double[][] responseMatrix) {
+        return solve(DenseMatrix.fromArray(responseMatrix)).toArray();
+    }
 
-            return getColumnVector(matrix, index);
+    /**
+     * Solves the least squares problem min ||AB - Y|| for every column of the supplied dense response matrix, without
+     * building Q. See <em>solve(double[])</em>.
+     * @param responses the response matrix, with one row per row of the decomposed matrix
+     * @return the coefficient matrix B, contiguous and row-major, with one column per column of the response matrix
+     */
+    public DenseMatrix solve(DenseMatrix responses) {
+        if (responses.getRows() != rows) {
+            throw new IllegalArgumentException("Responses must have one row per row of the decomposed matrix");
+        }
 
-        } else {
+        //column-major so every right hand side is a contiguous segment
+        double[] qty = responses.toColumnMajor().getData();
+        double[] result = new double[columns * responses.getColumns()];
 
-            if (UMap.containsKey(index)) {
-                return copyOf(UMap.get(index));
+        for (int c = 0; c < responses.getColumns(); c++) {
+            applyQTranspose(qty, c * rows);
+            double[] coefficients = backSubstitute(qty, c * rows);
+            for (int i = 0; i < columns; i++) {
+                result[i * responses.getColumns() + c] = coefficients[i];
             }
-
-            double[][] uVector = getCompleteUSection(index);
-            UMap.put(index, uVector);
-            return uVector;
         }
 
+        return DenseMatrix.wrapRowMajor(result, columns, responses.getColumns());
     }
 
     /**
-     * Computes a section of the equation to compute the UVectors used to compute the column vector of the Q matrix.
-     * @param aIndex the index of the column vector from the original matrix to use in the computation
-     * @param eIndex the index of the column vector computed before for the Q matrix
-     * @return the section of the equation to compute the UVectors used in the computation of the column vectors of the
-     * Q matrix, specified by the indices of the vector columns in the original matrix and in the Q matrix
+     * Applies QT in place to the vector starting at the supplied index, by applying every Householder reflection in turn.
+     * @param vector the array holding the vector
+     * @param start the index of the first entry of the vector
      */
-    private double[][] getUSection(int aIndex, int eIndex) {
-        double[][] eVector = getEVector(eIndex);
-        return multiplyVectorByScalar(eVector, multiplyDotProductVectors(getColumnVector(matrix, aIndex), eVector));
+    void applyQTranspose(double[] vector, int start) {
+        for (int k = 0; k < columns; k++) {
+            applyHouseholder(qr, k * rows + k, vector, start + k, rows - k);
+        }
     }
 
     /**
-     * Uses <em>getUSection</em> to compute the UVector used to compute the column vectors of the Q matrix through the
-     * Gram-Schmidt method, associated to the index provided.
-     * @param uIndex the index of the column vector to compute.
-     * @return the uVector to compute the column vector of the Q matrix with the associated index.
+     * Fills the supplied array with the j-th column of the thin Q, before the normalisation of the signs of R, by applying
+     * the reflections j down to 0 to the j-th unit vector. The later reflections leave it unchanged.
+     * @param j the index of the column
+     * @param column the array of one entry per row the column is written to
      */
-    private double[][] getCompleteUSection(int uIndex) {
+    void getQColumn(int j, double[] column) {
+        Arrays.fill(column, 0.0);
+        column[j] = 1.0;
 
-        double[][] result = getColumnVector(matrix, uIndex);
-
-        for (int i = 0; i < uIndex; i++) {
-            result = subtractVectors(result, getUSection(uIndex, i));
+        for (int k = j; k >= 0; k--) {
+            applyHouseholder(qr, k * rows + k, column, k, rows - k);
         }
-
-        return result;
     }
 
     /**
-     * Copies the vector/matrix supplied
-     * @param vector the column vector to copy (although it can also be a matrix, for the purposes of this algorithm,
-     *               we only use it for column vectors, hence the naming).
-     * @return the copy of the vector/matrix supplied.
+     * Computes the diagonal of the hat matrix H = Q QT, whose i-th entry is the leverage of the i-th row, as the squared
+     * norms of the rows of the thin Q. Q is built one column at a time, so only one extra column is kept in memory.
+     * @return the diagonal of the hat matrix, one entry per row
      */
-    private double[][] copyOf(double[][] vector) {
-        double[][] result = new double[vector.length][vector[0].length];
-
-        for (int i = 0; i < vector.length; i++) {
-            for (int j = 0; j < vector[0].length; j++) {
-                result[i][j] = vector[i][j];
+    public double[] getHatDiagonal() {
+        double[] hat = new double[rows];
+        double[] column = new double[rows];
+
+        for (int j = 0; j < columns; j++) {
+            getQColumn(j, column);
+            for (int i = 0; i < rows; i++) {
+                hat[i] += column[i] * column[i];
             }
         }
 
-        return result;
+        return hat;
+    }
+
+    /**
+     * Gets the number of rows of the decomposed matrix.
+     * @return the number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Gets the number of columns of the decomposed matrix.
+     * @return the number of columns
+     */
+    public int getColumns() {
+        return columns;
     }
 
     /**
-     * Puts the given column vector at the column specified by the index of the Q matrix.
-     * @param vector the column vector to put in the matrix Q.
-     * @param index the index to put the column vector at.
+     * Solves Rb = QTy by back substitution, reading R directly from the working array.
+     * @param qty the array holding QTy
+     * @param start the index of the first entry of QTy
+     * @return the solution b
      */
-    private void putQColumnVectorAtIndex(double[][] vector, int index) {
+    private double[] backSubstitute(double[] qty, int start) {
+        double[] result = new double[columns];
 
-        for (int i = 0; i < Q.length; i++) {
-            Q[i][index] = vector[i][0];
+        for (int i = columns - 1; i >= 0; i--) {
+            double value = qty[start + i];
+            for (int j = i + 1; j < columns; j++) {
+                value -= qr[j * rows + i] * result[j];
+            }
+            result[i] = value / rDiagonal[i];
         }
 
+        return result;
     }
 
     /**
@@ -297,22 +391,16 @@ public class QRDecomposition {
         return result;
     }
 
-    /**
-     * Put the value given by the dot product of the column of the original matrix and the column of the Q matrix
-     * (eVector) at the specified indices
-     * @param value the value given by the dot product of the column of the original matrix and the column of the Q matrix
-     * @param i the row index
-     * @param j the column index
-     */
-    private void putATimesEValueAtIndices(double value, int i, int j) {
-        R[i][j] = value;
-    }
-
     /**
      * Gets the original matrix.
+     * If a DenseMatrix was supplied, a jagged copy of it is returned, which is only meaningful when the decomposition was
+     * not performed in place.
      * @return the original matrix supplied.
      */
     public double[][] getMatrix() {
+        if (matrix == null) {
+            matrix = denseMatrix.toArray();
+        }
         return matrix;
     }
 
@@ -321,6 +409,9 @@ public class QRDecomposition {
      * @return the Q orthogonal matrix.
      */
     public double[][] getQ() {
+        if (Q == null) {
+            computeQ();
+        }
         return Q;
     }
 
@@ -329,6 +420,9 @@ public class QRDecomposition {
      * @return the R upper triangular matrix.
      */
     public double[][] getR() {
+        if (R == null) {
+            computeR();
+        }
         return R;
     }
 }
@@ -0,0 +1,196 @@
+package Utils;
+
+import java.util.Arrays;
+
+/**
+ * Class representing the leave-one-out and influence diagnostics of a least squares fit, computed in closed form from its
+ * QR decomposition instead of refitting without each point. The leverage of the i-th point is the i-th entry h<sub>i</sub>
+ * of the diagonal of the hat matrix H = Q Q<sup>T</sup>, the squared norm of the i-th row of the thin Q, and the residual
+ * of the point when the fit leaves it out is e<sub>i</sub> / (1 - h<sub>i</sub>), where e<sub>i</sub> is its residual in
+ * the full fit. From those follow the PRESS statistic, the sum of the squared leave-one-out residuals, the leave-one-out
+ * RMSE and Cook's distances. Q is built one column at a time from the Householder reflections, so the diagnostics cost
+ * O(n p<sup>2</sup>), about as much as the fit itself, and O(n) extra memory.
+ * @author gorosgobe
+ */
+public class RegressionDiagnostics {
+
+    /** The coefficients of the fit, in the order of the columns of the design matrix*/
+    private final double[] coefficients;
+    /** The residuals of the fit, one per training point*/
+    private final double[] residuals;
+    /** The diagonal of the hat matrix, one leverage per training point*/
+    private final double[] leverages;
+    /** The sum of the squared residuals of the fit*/
+    private final double residualSumOfSquares;
+
+    /**
+     * Fits the supplied design matrix, which is not modified, to the response and computes the diagnostics of the fit.
+     * @param designMatrix the design matrix, with one row per training point
+     * @param response the response vector, with one entry per training point
+     */
+    public RegressionDiagnostics(DenseMatrix designMatrix, double[] response) {
+        this(new QRDecomposition(designMatrix), response);
+    }
+
+    /**
+     * Computes the diagnostics of the least squares fit of the supplied response with an existing decomposition of the
+     * design matrix, which may have been computed in place.
+     * @param decomposition the QR decomposition of the design matrix
+     * @param response the response vector, with one entry per row of the design matrix
+     */
+    public RegressionDiagnostics(QRDecomposition decomposition, double[] response) {
+        int rows = decomposition.getRows();
+        int columns = decomposition.getColumns();
+
+        if (response.length != rows) {
+            throw new IllegalArgumentException("Response must have one entry per row of the design matrix");
+        }
+
+        this.coefficients = decomposition.solve(response);
+
+        double[] qty = Arrays.copyOf(response, rows);
+        decomposition.applyQTranspose(qty, 0);
+
+        //the fitted values are the projection Q QT y, accumulated with the leverages one column of Q at a time
+        double[] fitted = new double[rows];
+        this.leverages = new double[rows];
+        double[] column = new double[rows];
+        for (int j = 0; j < columns; j++) {
+            decomposition.getQColumn(j, column);
+            for (int i = 0; i < rows; i++) {
+                leverages[i] += column[i] * column[i];
+                fitted[i] += column[i] * qty[j];
+            }
+        }
+
+        this.residuals = new double[rows];
+        double sumOfSquares = 0.0;
+        for (int i = 0; i < rows; i++) {
+            residuals[i] = response[i] - fitted[i];
+            sumOfSquares += residuals[i] * residuals[i];
+        }
+        this.residualSumOfSquares = sumOfSquares;
+    }
+
+    /**
+     * Gets the coefficients of the fit.
+     * @return a copy of the coefficients, in the order of the columns of the design matrix
+     */
+    public double[] getCoefficients() {
+        return Arrays.copyOf(coefficients, coefficients.length);
+    }
+
+    /**
+     * Gets the residuals y<sub>i</sub> - f(x<sub>i</sub>) of the fit.
+     * @return a copy of the residuals, one per training point
+     */
+    public double[] getResiduals() {
+        return Arrays.copyOf(residuals, residuals.length);
+    }
+
+    /**
+     * Gets the leverages of the training points, the diagonal of the hat matrix. Each is between 0 and 1, and they add up
+     * to the number of coefficients.
+     * @return a copy of the leverages, one per training point
+     */
+    public double[] getLeverages() {
+        return Arrays.copyOf(leverages, leverages.length);
+    }
+
+    /**
+     * Gets the leverage of a training point.
+     * @param point the index of the training point
+     * @return the leverage of the point
+     */
+    public double getLeverage(int point) {
+        return leverages[point];
+    }
+
+    /**
+     * Gets the residual of a training point in the fit without it, e<sub>i</sub> / (1 - h<sub>i</sub>). It is NaN for a
+     * point with leverage 1, which the fit interpolates whatever its value.
+     * @param point the index of the training point
+     * @return the leave-one-out residual of the point
+     */
+    public double getLeaveOneOutResidual(int point) {
+        return residuals[point] / (1.0 - leverages[point]);
+    }
+
+    /**
+     * Gets the PRESS (predicted residual error sum of squares) statistic, the sum of the squared leave-one-out residuals.
+     * @return the PRESS statistic
+     */
+    public double getPress() {
+        double press = 0.0;
+        for (int i = 0; i < residuals.length; i++) {
+            double residual = getLeaveOneOutResidual(i);
+            press += residual * residual;
+        }
+
+        return press;
+    }
+
+    /**
+     * Gets the RMSE (Root Mean Square Error) of the leave-one-out residuals, an estimate of the test error of the model
+     * without a separate test set.
+     * @return the leave-one-out RMSE
+     */
+    public double getLeaveOneOutRootMeanSquareError() {
+        return Math.sqrt(getPress() / residuals.length);
+    }
+
+    /**
+     * Gets the Cook's distance of every training point, e<sub>i</sub><sup>2</sup> h<sub>i</sub> / (p s<sup>2</sup>
+     * (1 - h<sub>i</sub>)<sup>2</sup>) with p coefficients and s<sup>2</sup> the residual sum of squares over n - p, which
+     * measures how much the fit moves when the point is left out.
+     * @return the Cook's distances, one per training point, NaN if there are no more points than coefficients
+     */
+    public double[] getCooksDistances() {
+        int p = coefficients.length;
+        double variance = residualSumOfSquares / (residuals.length - p);
+        double[] distances = new double[residuals.length];
+
+        for (int i = 0; i < distances.length; i++) {
+            double oneMinusLeverage = 1.0 - leverages[i];
+            distances[i] = residuals[i] * residuals[i] * leverages[i]
+                    / (p * variance * oneMinusLeverage * oneMinusLeverage);
+        }
+
+        return distances;
+    }
+
+    /**
+     * Gets the training points with a Cook's distance above 4 / n, the usual threshold for influential points.
+     * @return the indices of the influential points, in increasing order
+     */
+    public int[] getInfluentialPoints() {
+        return getInfluentialPoints(4.0 / residuals.length);
+    }
+
+    /**
+     * Gets the training points with a Cook's distance above the supplied threshold.
+     * @param threshold the Cook's distance above which a point is influential
+     * @return the indices of the influential points, in increasing order
+     */
+    public int[] getInfluentialPoints(double threshold) {
+        double[] distances = getCooksDistances();
+        int[] points = new int[distances.length];
+        int count = 0;
+
+        for (int i = 0; i < distances.length; i++) {
+            if (distances[i] > threshold) {
+                points[count++] = i;
+            }
+        }
+
+        return Arrays.copyOf(points, count);
+    }
+
+    /**
+     * Gets the sum of the squared residuals of the fit.
+     * @return the residual sum of squares
+     */
+    public double getResidualSumOfSquares() {
+        return residualSumOfSquares;
+    }
+}
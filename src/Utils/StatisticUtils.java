@@ -1,7 +1,9 @@
 package Utils;
 
-import java.util.Arrays;
+import java.nio.DoubleBuffer;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.stream.Collectors;
 
 /**
@@ -12,6 +14,10 @@ public class StatisticUtils {
 
     /** Default EPSILON used for double comparison*/
     public static final double EPSILON = 0.00001;
+    /** Number of entries below which moments are accumulated sequentially instead of being split in halves and merged*/
+    private static final int PAIRWISE_BLOCK_SIZE = 128;
+    /** Number of entries below which the parallel versions run sequentially, and size of the work of each task*/
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
 
     /**
      * Looks for equality between two doubles within the epsilon parameter.
@@ -40,10 +46,7 @@ public class StatisticUtils {
      * @return the mean of the supplied list of doubles
      */
     public static double mean(List<Double> list) {
-
-        double sum = list.stream().reduce(0.0, (a, b) -> a + b);
-        return sum / list.size();
-
+        return mean(toArray(list));
     }
 
     /**
@@ -52,7 +55,61 @@ public class StatisticUtils {
      * @return the mean of the supplied array of doubles
      */
     public static double mean(Double[] doubles) {
-        return mean(Arrays.asList(doubles));
+        double[] values = new double[doubles.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = doubles[i];
+        }
+        return mean(values);
+    }
+
+    /**
+     * Computes the mean of the supplied array of doubles
+     * @param values the doubles to compute the mean of
+     * @return the mean of the supplied array of doubles
+     */
+    public static double mean(double[] values) {
+        return mean(values, 0, values.length);
+    }
+
+    /**
+     * Computes the mean of the entries of the supplied array in the range supplied
+     * @param values the doubles to compute the mean of
+     * @param from the first index of the range, inclusive
+     * @param to the last index of the range, exclusive
+     * @return the mean of the entries in the range
+     */
+    public static double mean(double[] values, int from, int to) {
+        return sum(values, from, to) / (to - from);
+    }
+
+    /**
+     * Computes the sum of the entries of the supplied array in the range supplied, with Neumaier's compensated summation.
+     * The rounding error of every addition is accumulated separately and added back at the end, so the error of the sum
+     * does not grow with the number of entries.
+     * @param values the doubles to add
+     * @param from the first index of the range, inclusive
+     * @param to the last index of the range, exclusive
+     * @return the sum of the entries in the range
+     */
+    public static double sum(double[] values, int from, int to) {
+        checkRange(values.length, from, to);
+
+        double sum = 0.0;
+        double compensation = 0.0;
+
+        for (int i = from; i < to; i++) {
+            double value = values[i];
+            double t = sum + value;
+            //recovers the low order bits lost by the addition, from whichever operand is smaller
+            if (Math.abs(sum) >= Math.abs(value)) {
+                compensation += (sum - t) + value;
+            } else {
+                compensation += (value - t) + sum;
+            }
+            sum = t;
+        }
+
+        return sum + compensation;
     }
 
     /**
@@ -61,12 +118,7 @@ public class StatisticUtils {
      * @return the variance of the list of doubles
      */
     public static double variance(List<Double> list) {
-
-        double mean = mean(list);
-
-        return list.stream()
-                .map(i -> (i - mean) * (i - mean))
-                .reduce(0.0, (a, b) -> a + b);
+        return variance(toArray(list));
     }
 
     /**
@@ -75,7 +127,75 @@ public class StatisticUtils {
      * @return the variance of the array of doubles
      */
     public static double variance(Double[] doubles) {
-        return variance(Arrays.asList(doubles));
+        double[] values = new double[doubles.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = doubles[i];
+        }
+        return variance(values);
+    }
+
+    /**
+     * Computes the variance of an array of doubles, as the sum of the squared deviations from their mean
+     * @param values the doubles to compute the variance of
+     * @return the variance of the array of doubles
+     */
+    public static double variance(double[] values) {
+        return variance(values, 0, values.length);
+    }
+
+    /**
+     * Computes the variance of the entries of the supplied array in the range supplied, as the sum of the squared
+     * deviations from their mean, in a single pass
+     * @param values the doubles to compute the variance of
+     * @param from the first index of the range, inclusive
+     * @param to the last index of the range, exclusive
+     * @return the variance of the entries in the range
+     */
+    public static double variance(double[] values, int from, int to) {
+        checkRange(values.length, from, to);
+
+        if (from == to) {
+            return 0.0;
+        }
+
+        return sumOfSquares(values, from, to, new double[1]);
+    }
+
+    /**
+     * Computes the sum of the squared deviations from their mean of the entries in the range supplied, splitting and
+     * merging like <em>moments</em> but only accumulating the mean and the sum of squares of a single variable. Blocks
+     * are accumulated with Welford's updates and merged pairwise with the formulas of Chan, Golub and LeVeque.
+     * @param values the doubles to compute the sum of squares of
+     * @param from the first index of the range, inclusive
+     * @param to the last index of the range, exclusive, greater than <em>from</em>
+     * @param mean the array whose first entry is set to the mean of the entries in the range
+     * @return the sum of the squared deviations from the mean
+     */
+    private static double sumOfSquares(double[] values, int from, int to, double[] mean) {
+        if (to - from <= PAIRWISE_BLOCK_SIZE) {
+            double blockMean = 0.0;
+            double sumOfSquares = 0.0;
+            for (int i = from; i < to; i++) {
+                double value = values[i];
+                double delta = value - blockMean;
+                blockMean += delta / (i - from + 1);
+                sumOfSquares += delta * (value - blockMean);
+            }
+            mean[0] = blockMean;
+            return sumOfSquares;
+        }
+
+        int middle = (from + to) >>> 1;
+        double left = sumOfSquares(values, from, middle, mean);
+        double leftMean = mean[0];
+        double right = sumOfSquares(values, middle, to, mean);
+        double delta = mean[0] - leftMean;
+        double leftCount = middle - from;
+        double rightCount = to - middle;
+        double count = to - from;
+
+        mean[0] = leftMean + delta * rightCount / count;
+        return left + right + delta * delta * leftCount * rightCount / count;
     }
 
     /**
@@ -85,27 +205,411 @@ public class StatisticUtils {
      * @return the covariance of the points formed by both lists
      */
     public static double covariance(List<Double> xs, List<Double> ys) {
+        return covariance(toArray(xs), toArray(ys));
+    }
+
+    /**
+     * Gets the covariance of the list of points supplied
+     * @param points the points to compute the covariance of
+     * @return the covariance of the list of points supplied
+     */
+    public static double covariance(List<Point> points) {
+        return moments(points).getSumOfProducts();
+    }
+
+    /**
+     * Gets the covariance of the supplied arrays of doubles, as the sum of the products of the deviations from their means
+     * @param xs the xs of the points
+     * @param ys the ys of the points
+     * @return the covariance of the points formed by both arrays
+     */
+    public static double covariance(double[] xs, double[] ys) {
+        checkSameLength(xs.length, ys.length);
+        return covariance(xs, ys, 0, xs.length);
+    }
 
-        double meanX = mean(xs);
-        double meanY = mean(ys);
+    /**
+     * Gets the covariance of the points formed by the entries of both arrays in the range supplied, in a single pass
+     * @param xs the xs of the points
+     * @param ys the ys of the points
+     * @param from the first index of the range, inclusive
+     * @param to the last index of the range, exclusive
+     * @return the covariance of the points in the range
+     */
+    public static double covariance(double[] xs, double[] ys, int from, int to) {
+        return moments(xs, ys, from, to).getSumOfProducts();
+    }
 
-        double covariance = 0.0;
+    /**
+     * Computes the means, variances and covariance of the list of points supplied in a single pass.
+     * @param points the points to compute the moments of
+     * @return the moments of the points
+     */
+    public static BivariateMoments moments(List<Point> points) {
+        double[] xs = new double[points.size()];
+        double[] ys = new double[points.size()];
 
-        for (int i = 0; i < xs.size(); i++) {
-            covariance += (xs.get(i) - meanX) * (ys.get(i) - meanY);
+        for (int i = 0; i < xs.length; i++) {
+            Point point = points.get(i);
+            xs[i] = point.getX();
+            ys[i] = point.getY();
         }
 
-        return covariance;
+        return moments(xs, ys, 0, xs.length);
+    }
 
+    /**
+     * Computes the means, variances and covariance of the points formed by both arrays in a single pass.
+     * @param xs the xs of the points
+     * @param ys the ys of the points
+     * @return the moments of the points
+     */
+    public static BivariateMoments moments(double[] xs, double[] ys) {
+        checkSameLength(xs.length, ys.length);
+        return moments(xs, ys, 0, xs.length);
     }
 
     /**
-     * Gets the covariance of the list of points supplied
-     * @param points the points to compute the covariance of
-     * @return the covariance of the list of points supplied
+     * Computes the means, variances and covariance of the points formed by the entries of both arrays in the range
+     * supplied, in a single pass. Blocks of the range are accumulated with Welford's updates and merged pairwise, so the
+     * rounding error grows with the logarithm of the number of points rather than linearly.
+     * @param xs the xs of the points
+     * @param ys the ys of the points
+     * @param from the first index of the range, inclusive
+     * @param to the last index of the range, exclusive
+     * @return the moments of the points in the range
      */
-    public static double covariance(List<Point> points) {
-        return covariance(getListOfX(points), getListOfY(points));
+    public static BivariateMoments moments(double[] xs, double[] ys, int from, int to) {
+        checkRange(xs.length, from, to);
+        checkRange(ys.length, from, to);
+
+        if (to - from <= PAIRWISE_BLOCK_SIZE) {
+            BivariateMoments moments = new BivariateMoments();
+            moments.addAll(xs, ys, from, to);
+            return moments;
+        }
+
+        int middle = (from + to) >>> 1;
+        BivariateMoments moments = moments(xs, ys, from, middle);
+        moments.merge(moments(xs, ys, middle, to));
+        return moments;
+    }
+
+    /**
+     * Computes the means, variances and covariance of the points formed by the remaining entries of both buffers, from
+     * their positions to their limits, in a single pass. The positions of the buffers are not modified.
+     * @param xs the xs of the points
+     * @param ys the ys of the points
+     * @return the moments of the points
+     */
+    public static BivariateMoments moments(DoubleBuffer xs, DoubleBuffer ys) {
+        checkSameLength(xs.remaining(), ys.remaining());
+        return moments(xs, ys, 0, xs.remaining());
+    }
+
+    /**
+     * Computes the moments of the points at the supplied range of indices relative to the positions of both buffers,
+     * splitting and merging like the array version.
+     * @param xs the xs of the points
+     * @param ys the ys of the points
+     * @param from the first index of the range, inclusive
+     * @param to the last index of the range, exclusive
+     * @return the moments of the points in the range
+     */
+    private static BivariateMoments moments(DoubleBuffer xs, DoubleBuffer ys, int from, int to) {
+        if (to - from <= PAIRWISE_BLOCK_SIZE) {
+            BivariateMoments moments = new BivariateMoments();
+            int xStart = xs.position();
+            int yStart = ys.position();
+            for (int i = from; i < to; i++) {
+                moments.add(xs.get(xStart + i), ys.get(yStart + i));
+            }
+            return moments;
+        }
+
+        int middle = (from + to) >>> 1;
+        BivariateMoments moments = moments(xs, ys, from, middle);
+        moments.merge(moments(xs, ys, middle, to));
+        return moments;
+    }
+
+    /**
+     * Computes the mean of the supplied array of doubles on the common fork/join pool
+     * @param values the doubles to compute the mean of
+     * @return the mean of the supplied array of doubles
+     */
+    public static double parallelMean(double[] values) {
+        return parallelMean(values, 0, values.length, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Computes the mean of the entries of the supplied array in the range supplied on the supplied pool. Ranges below the
+     * parallel threshold are computed sequentially on the calling thread.
+     * @param values the doubles to compute the mean of
+     * @param from the first index of the range, inclusive
+     * @param to the last index of the range, exclusive
+     * @param pool the pool to run the tasks on
+     * @return the mean of the entries in the range
+     */
+    public static double parallelMean(double[] values, int from, int to, ForkJoinPool pool) {
+        checkRange(values.length, from, to);
+
+        if (to - from <= PARALLEL_THRESHOLD) {
+            return mean(values, from, to);
+        }
+
+        return pool.invoke(new SumTask(values, from, to)) / (to - from);
+    }
+
+    /**
+     * Computes the variance of an array of doubles, as the sum of the squared deviations from their mean, on the common
+     * fork/join pool
+     * @param values the doubles to compute the variance of
+     * @return the variance of the array of doubles
+     */
+    public static double parallelVariance(double[] values) {
+        return parallelVariance(values, 0, values.length, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Computes the variance of the entries of the supplied array in the range supplied, as the sum of the squared
+     * deviations from their mean, on the supplied pool. Every piece is accumulated with the univariate kernel of
+     * <em>variance</em> and the partial means and sums of squares are merged like <em>parallelMoments</em>. Ranges below
+     * the parallel threshold are computed sequentially on the calling thread.
+     * @param values the doubles to compute the variance of
+     * @param from the first index of the range, inclusive
+     * @param to the last index of the range, exclusive
+     * @param pool the pool to run the tasks on
+     * @return the variance of the entries in the range
+     */
+    public static double parallelVariance(double[] values, int from, int to, ForkJoinPool pool) {
+        checkRange(values.length, from, to);
+
+        if (to - from <= PARALLEL_THRESHOLD) {
+            return variance(values, from, to);
+        }
+
+        return pool.invoke(new VarianceTask(values, from, to))[1];
+    }
+
+    /**
+     * Gets the covariance of the supplied arrays of doubles, as the sum of the products of the deviations from their
+     * means, on the common fork/join pool
+     * @param xs the xs of the points
+     * @param ys the ys of the points
+     * @return the covariance of the points formed by both arrays
+     */
+    public static double parallelCovariance(double[] xs, double[] ys) {
+        return parallelMoments(xs, ys).getSumOfProducts();
+    }
+
+    /**
+     * Computes the means, variances and covariance of the points formed by both arrays on the common fork/join pool.
+     * @param xs the xs of the points
+     * @param ys the ys of the points
+     * @return the moments of the points
+     */
+    public static BivariateMoments parallelMoments(double[] xs, double[] ys) {
+        checkSameLength(xs.length, ys.length);
+        return parallelMoments(xs, ys, 0, xs.length, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Computes the means, variances and covariance of the points formed by the entries of both arrays in the range
+     * supplied on the supplied pool. The range is split in halves until the parallel threshold, the moments of every
+     * piece are computed sequentially and the partial moments are merged with the formulas of Chan, Golub and LeVeque,
+     * so the result matches <em>moments</em> up to rounding. Ranges below the threshold are computed sequentially on the
+     * calling thread.
+     * @param xs the xs of the points
+     * @param ys the ys of the points
+     * @param from the first index of the range, inclusive
+     * @param to the last index of the range, exclusive
+     * @param pool the pool to run the tasks on
+     * @return the moments of the points in the range
+     */
+    public static BivariateMoments parallelMoments(double[] xs, double[] ys, int from, int to, ForkJoinPool pool) {
+        checkRange(xs.length, from, to);
+        checkRange(ys.length, from, to);
+
+        if (to - from <= PARALLEL_THRESHOLD) {
+            return moments(xs, ys, from, to);
+        }
+
+        return pool.invoke(new MomentsTask(xs, ys, from, to));
+    }
+
+    /**
+     * Task computing the moments of a range of points, forking one half and computing the other until the range is below
+     * the parallel threshold.
+     */
+    private static class MomentsTask extends RecursiveTask<BivariateMoments> {
+
+        /** The version of the serialized form of the task*/
+        private static final long serialVersionUID = 1L;
+
+        /** The xs of the points*/
+        private final double[] xs;
+        /** The ys of the points*/
+        private final double[] ys;
+        /** The first index of the range, inclusive*/
+        private final int from;
+        /** The last index of the range, exclusive*/
+        private final int to;
+
+        /**
+         * Constructs a task for the points in the range supplied.
+         * @param xs the xs of the points
+         * @param ys the ys of the points
+         * @param from the first index of the range, inclusive
+         * @param to the last index of the range, exclusive
+         */
+        private MomentsTask(double[] xs, double[] ys, int from, int to) {
+            this.xs = xs;
+            this.ys = ys;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected BivariateMoments compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                return moments(xs, ys, from, to);
+            }
+
+            int middle = (from + to) >>> 1;
+            MomentsTask right = new MomentsTask(xs, ys, middle, to);
+            right.fork();
+            BivariateMoments moments = new MomentsTask(xs, ys, from, middle).compute();
+            moments.merge(right.join());
+            return moments;
+        }
+    }
+
+    /**
+     * Task computing the mean and the sum of the squared deviations from it of a range of doubles, in this order, forking
+     * one half and computing the other until the range is below the parallel threshold.
+     */
+    private static class VarianceTask extends RecursiveTask<double[]> {
+
+        /** The version of the serialized form of the task*/
+        private static final long serialVersionUID = 1L;
+
+        /** The doubles to compute the variance of*/
+        private final double[] values;
+        /** The first index of the range, inclusive*/
+        private final int from;
+        /** The last index of the range, exclusive*/
+        private final int to;
+
+        /**
+         * Constructs a task for the doubles in the range supplied.
+         * @param values the doubles to compute the variance of
+         * @param from the first index of the range, inclusive
+         * @param to the last index of the range, exclusive
+         */
+        private VarianceTask(double[] values, int from, int to) {
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                double[] result = new double[2];
+                result[1] = sumOfSquares(values, from, to, result);
+                return result;
+            }
+
+            int middle = (from + to) >>> 1;
+            VarianceTask rightTask = new VarianceTask(values, middle, to);
+            rightTask.fork();
+            double[] left = new VarianceTask(values, from, middle).compute();
+            double[] right = rightTask.join();
+
+            double delta = right[0] - left[0];
+            double leftCount = middle - from;
+            double rightCount = to - middle;
+            double count = to - from;
+
+            left[0] += delta * rightCount / count;
+            left[1] += right[1] + delta * delta * leftCount * rightCount / count;
+            return left;
+        }
+    }
+
+    /**
+     * Task computing the sum of a range of doubles, forking one half and computing the other until the range is below the
+     * parallel threshold. Every piece is summed with compensation and the partial sums are added pairwise.
+     */
+    private static class SumTask extends RecursiveTask<Double> {
+
+        /** The version of the serialized form of the task*/
+        private static final long serialVersionUID = 1L;
+
+        /** The doubles to add*/
+        private final double[] values;
+        /** The first index of the range, inclusive*/
+        private final int from;
+        /** The last index of the range, exclusive*/
+        private final int to;
+
+        /**
+         * Constructs a task for the doubles in the range supplied.
+         * @param values the doubles to add
+         * @param from the first index of the range, inclusive
+         * @param to the last index of the range, exclusive
+         */
+        private SumTask(double[] values, int from, int to) {
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Double compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                return sum(values, from, to);
+            }
+
+            int middle = (from + to) >>> 1;
+            SumTask right = new SumTask(values, middle, to);
+            right.fork();
+            double left = new SumTask(values, from, middle).compute();
+            return left + right.join();
+        }
+    }
+
+    /**
+     * Copies the supplied list of doubles into a primitive array.
+     * @param list the list to copy
+     * @return the array with the entries of the list
+     */
+    private static double[] toArray(List<Double> list) {
+        return list.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    /**
+     * Checks the supplied range lies within an array of the supplied length.
+     * @param length the length of the array
+     * @param from the first index of the range, inclusive
+     * @param to the last index of the range, exclusive
+     */
+    private static void checkRange(int length, int from, int to) {
+        if (from < 0 || to > length || from > to) {
+            throw new IllegalArgumentException("Range [" + from + ", " + to + ") is not within the array");
+        }
+    }
+
+    /**
+     * Checks two arrays have the same length.
+     * @param length1 the length of the first array
+     * @param length2 the length of the second array
+     */
+    private static void checkSameLength(int length1, int length2) {
+        if (length1 != length2) {
+            throw new IllegalArgumentException("Both arrays must have the same length");
+        }
     }
 
     /**
@@ -0,0 +1,290 @@
+package Utils;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Class representing a tall-skinny QR decomposition (TSQR), for matrices with many more rows than columns. The rows are
+ * split into blocks which are factorized with Householder reflections in parallel on a fork/join pool, and the R factors
+ * of sibling blocks are stacked and factorized again, up a binary reduction tree, until a single R remains. Every step is
+ * an orthogonal transformation, so the result has the stability of a plain QR decomposition, unlike the normal
+ * equations. Q is never built: when a response vector is supplied, it is carried along as an extra column, so the root
+ * of the tree also holds Q<sup>T</sup>y and the norm of the residuals, which is all a least squares solve needs. R is
+ * normalised to have a non-negative diagonal, as in <em>QRDecomposition.getR</em>.
+ * @author gorosgobe
+ */
+public class TSQRDecomposition {
+
+    /** The number of rows from which the regressions factorize their design matrix with TSQR*/
+    public static final int PARALLEL_THRESHOLD = 1 << 16;
+    /** The default maximum number of rows of a block factorized by a single task*/
+    public static final int DEFAULT_BLOCK_ROWS = 1 << 13;
+
+    /** The number of rows of the matrix decomposed*/
+    private final int rows;
+    /** The number of columns of the matrix decomposed*/
+    private final int columns;
+    /** The number of columns of the factors in the tree, one more than the matrix's if a response is carried along*/
+    private final int width;
+    /** The maximum number of rows of a block factorized by a single task*/
+    private final int blockRows;
+    /** Column-major working array of the matrix, overwritten by the reflections of the blocks*/
+    private final double[] data;
+    /** The working copy of the response, null if none was supplied*/
+    private final double[] response;
+    /** Column-major width x width upper triangular factor at the root of the tree, with a non-negative diagonal*/
+    private final double[] r;
+
+    /**
+     * Decomposes a working copy of the supplied matrix on the common fork/join pool.
+     * @param matrix the matrix to decompose, with at least as many rows as columns
+     */
+    public TSQRDecomposition(DenseMatrix matrix) {
+        this(matrix, null, false, ForkJoinPool.commonPool(), DEFAULT_BLOCK_ROWS);
+    }
+
+    /**
+     * Decomposes the supplied matrix on the common fork/join pool, carrying the response along to solve the least
+     * squares problem. See <em>TSQRDecomposition(DenseMatrix, double[], boolean, ForkJoinPool, int)</em>.
+     * @param matrix the matrix to decompose, with at least as many rows as columns
+     * @param response the response vector, with one entry per row of the matrix
+     * @param inPlace can the backing array of the matrix and the response be overwritten?
+     */
+    public TSQRDecomposition(DenseMatrix matrix, double[] response, boolean inPlace) {
+        this(matrix, response, inPlace, ForkJoinPool.commonPool(), DEFAULT_BLOCK_ROWS);
+    }
+
+    /**
+     * Decomposes the supplied matrix on the supplied pool. If <em>inPlace</em> is true and the matrix is contiguous and
+     * column-major, its backing array and the response are overwritten by the factorization, as in
+     * <em>QRDecomposition</em>; otherwise working copies are made.
+     * @param matrix the matrix to decompose, with at least as many rows as columns
+     * @param response the response vector, with one entry per row of the matrix, or null to only compute R
+     * @param inPlace can the backing array of the matrix and the response be overwritten?
+     * @param pool the pool factorizing the blocks
+     * @param blockRows the maximum number of rows of a block factorized by a single task
+     */
+    public TSQRDecomposition(DenseMatrix matrix, double[] response, boolean inPlace, ForkJoinPool pool, int blockRows) {
+        this.rows = matrix.getRows();
+        this.columns = matrix.getColumns();
+        this.width = response == null ? columns : columns + 1;
+
+        if (rows < columns) {
+            throw new IllegalArgumentException("Matrix must have at least as many rows as columns");
+        }
+
+        if (response != null && response.length != rows) {
+            throw new IllegalArgumentException("Response must have one entry per row of the matrix");
+        }
+
+        if (blockRows < 1) {
+            throw new IllegalArgumentException("Number of rows per block should be >= 1");
+        }
+
+        //sibling blocks always have enough rows for a full triangular factor
+        this.blockRows = Math.max(blockRows, 2 * width);
+
+        if (matrix.isContiguousColumnMajor() && inPlace && matrix.getOffset() == 0) {
+            this.data = matrix.getData();
+        } else if (matrix.isContiguousColumnMajor()) {
+            this.data = new double[rows * columns];
+            System.arraycopy(matrix.getData(), matrix.getOffset(), data, 0, data.length);
+        } else {
+            this.data = matrix.toColumnMajor().getData();
+        }
+        this.response = response == null || inPlace ? response : response.clone();
+
+        this.r = pool.invoke(new BlockTask(0, rows));
+        normaliseSigns();
+    }
+
+    /**
+     * Task factorizing a range of rows: small ranges are factorized directly, larger ones are split in two halves whose R
+     * factors are combined.
+     */
+    private final class BlockTask extends RecursiveTask<double[]> {
+
+        /** The version of the serialized form of the task*/
+        private static final long serialVersionUID = 1L;
+
+        /** The first row of the range*/
+        private final int from;
+        /** The row after the last one of the range*/
+        private final int to;
+
+        /**
+         * Constructs a task factorizing the supplied range of rows.
+         * @param from the first row of the range
+         * @param to the row after the last one of the range
+         */
+        private BlockTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (to - from <= blockRows) {
+                return factorBlock(from, to);
+            }
+
+            int middle = (from + to) >>> 1;
+            BlockTask left = new BlockTask(from, middle);
+            left.fork();
+            double[] right = new BlockTask(middle, to).compute();
+
+            return combine(left.join(), right);
+        }
+    }
+
+    /**
+     * Factorizes a block of rows in place with Householder reflections, applying them to the response too.
+     * @param from the first row of the block
+     * @param to the row after the last one of the block
+     * @return the column-major width x width triangular factor of the block
+     */
+    private double[] factorBlock(int from, int to) {
+        int length = to - from;
+        double[] factor = new double[width * width];
+
+        for (int k = 0; k < columns; k++) {
+            int householderStart = k * rows + from + k;
+            double diagonal = QRDecomposition.householderColumn(data, householderStart, length - k);
+
+            for (int j = k + 1; j < columns; j++) {
+                QRDecomposition.applyHouseholder(data, householderStart, data, j * rows + from + k, length - k);
+            }
+
+            if (response != null) {
+                QRDecomposition.applyHouseholder(data, householderStart, response, from + k, length - k);
+            }
+
+            for (int i = 0; i < k; i++) {
+                factor[k * width + i] = data[k * rows + from + i];
+            }
+            factor[k * width + k] = diagonal;
+        }
+
+        if (response != null) {
+            for (int i = 0; i < columns; i++) {
+                factor[columns * width + i] = response[from + i];
+            }
+            factor[columns * width + columns] = QRDecomposition.computeNorm(response, from + columns, length - columns);
+        }
+
+        return factor;
+    }
+
+    /**
+     * Combines the triangular factors of two sibling blocks by factorizing them stacked on top of each other.
+     * @param top the column-major triangular factor of the first block
+     * @param bottom the column-major triangular factor of the second block
+     * @return the column-major triangular factor of both blocks
+     */
+    private double[] combine(double[] top, double[] bottom) {
+        int stackedRows = 2 * width;
+        double[] stacked = new double[stackedRows * width];
+
+        for (int j = 0; j < width; j++) {
+            System.arraycopy(top, j * width, stacked, j * stackedRows, j + 1);
+            System.arraycopy(bottom, j * width, stacked, j * stackedRows + width, j + 1);
+        }
+
+        double[] factor = new double[width * width];
+        for (int k = 0; k < width; k++) {
+            int householderStart = k * stackedRows + k;
+            //the reflections only ever touch row k of the top factor and rows 0 to k of the bottom one
+            int length = width + 1;
+            factor[k * width + k] = QRDecomposition.householderColumn(stacked, householderStart, length);
+
+            for (int j = k + 1; j < width; j++) {
+                QRDecomposition.applyHouseholder(stacked, householderStart, stacked, j * stackedRows + k, length);
+            }
+
+            for (int i = 0; i < k; i++) {
+                factor[k * width + i] = stacked[k * stackedRows + i];
+            }
+        }
+
+        return factor;
+    }
+
+    /**
+     * Negates the rows of the root factor with a negative diagonal entry, together with their entry of Q<sup>T</sup>y,
+     * which leaves the least squares solution unchanged.
+     */
+    private void normaliseSigns() {
+        for (int i = 0; i < width; i++) {
+            if (r[i * width + i] < 0) {
+                for (int j = i; j < width; j++) {
+                    r[j * width + i] = -r[j * width + i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Solves the least squares problem min ||Ab - y|| for the response supplied, by back substitution of Rb = QTy.
+     * @return the coefficient vector b
+     */
+    public double[] solve() {
+        if (response == null) {
+            throw new IllegalStateException("No response was supplied to the decomposition");
+        }
+
+        double[] result = new double[columns];
+        for (int i = columns - 1; i >= 0; i--) {
+            double value = r[columns * width + i];
+            for (int j = i + 1; j < columns; j++) {
+                value -= r[j * width + i] * result[j];
+            }
+            result[i] = value / r[i * width + i];
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets the norm of the residuals of the least squares solution, ||Ab - y||.
+     * @return the norm of the residuals
+     */
+    public double getResidualNorm() {
+        if (response == null) {
+            throw new IllegalStateException("No response was supplied to the decomposition");
+        }
+
+        return r[columns * width + columns];
+    }
+
+    /**
+     * Gets the upper triangular matrix R from the QR decomposition, with a non-negative diagonal.
+     * @return the R upper triangular matrix
+     */
+    public double[][] getR() {
+        double[][] result = new double[columns][columns];
+
+        for (int i = 0; i < columns; i++) {
+            for (int j = i; j < columns; j++) {
+                result[i][j] = r[j * width + i];
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets the number of rows of the matrix decomposed.
+     * @return the number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Gets the number of columns of the matrix decomposed.
+     * @return the number of columns
+     */
+    public int getColumns() {
+        return columns;
+    }
+}
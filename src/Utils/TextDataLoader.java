@@ -0,0 +1,445 @@
+package Utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Class representing a loader of numeric text data, one row per line with the values separated by whitespace, commas or
+ * semicolons, as in the test data files. The file is split into byte ranges starting at line boundaries, and every range
+ * is memory-mapped and parsed on the supplied executor straight into primitive columns, which are concatenated once all
+ * ranges are done. Blank lines, lines made only of separators and comment lines, starting with // or #, are skipped, as
+ * are a fixed number of header lines at the start of the file. The columns can be used directly or as a
+ * <em>ColumnarDataset</em>, which in turn builds <em>Point</em> and <em>MultiplePoint</em> lists.
+ * @author gorosgobe
+ */
+public class TextDataLoader {
+
+    /** The maximum number of bytes parsed by a single task*/
+    private static final int MAX_CHUNK_SIZE = 1 << 24;
+    /** The minimum number of bytes worth parsing in a separate task*/
+    private static final int MIN_CHUNK_SIZE = 1 << 16;
+    /** The size of the buffer used to look for line boundaries*/
+    private static final int SCAN_BUFFER_SIZE = 1 << 12;
+    /** The number of rows every column of a chunk can initially hold*/
+    private static final int INITIAL_ROWS = 1 << 10;
+    /** The powers of ten that are exactly representable as doubles*/
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /** The executor parsing the chunks of the file*/
+    private final ExecutorService executor;
+    /** The number of lines skipped at the start of the file*/
+    private final int headerLines;
+
+    /**
+     * Constructs a loader parsing on the common fork/join pool, skipping only comment and blank lines.
+     */
+    public TextDataLoader() {
+        this(ForkJoinPool.commonPool(), 0);
+    }
+
+    /**
+     * Constructs a loader parsing on the supplied executor, which it never shuts down.
+     * @param executor the executor parsing the chunks of the file
+     * @param headerLines the number of lines skipped at the start of the file, such as a line with column names
+     */
+    public TextDataLoader(ExecutorService executor, int headerLines) {
+        if (headerLines < 0) {
+            throw new IllegalArgumentException("Number of header lines should be >= 0");
+        }
+
+        this.executor = executor;
+        this.headerLines = headerLines;
+    }
+
+    /**
+     * Loads a file as a dataset, taking the supplied column as the dependent variable and every other column, in file
+     * order, as an independent variable.
+     * @param path the file to load
+     * @param yColumn the index of the column of the dependent variable
+     * @return the dataset over the loaded columns
+     * @throws IOException if the file cannot be read
+     * @throws InterruptedException if the calling thread is interrupted while the file is parsed
+     */
+    public ColumnarDataset loadDataset(Path path, int yColumn) throws IOException, InterruptedException {
+        double[][] columns = loadColumns(path);
+
+        if (yColumn < 0 || yColumn >= columns.length) {
+            throw new IllegalArgumentException("Column " + yColumn + " is not in the file");
+        }
+
+        double[][] xColumns = new double[columns.length - 1][];
+        for (int j = 0, k = 0; j < columns.length; j++) {
+            if (j != yColumn) {
+                xColumns[k++] = columns[j];
+            }
+        }
+
+        return new ColumnarDataset(xColumns, columns[yColumn]);
+    }
+
+    /**
+     * Loads every column of a file. All data lines must have the same number of values.
+     * @param path the file to load
+     * @return the columns of the file, in file order
+     * @throws IOException if the file cannot be read
+     * @throws InterruptedException if the calling thread is interrupted while the file is parsed
+     */
+    public double[][] loadColumns(Path path) throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = skipLines(channel, 0, headerLines);
+            long length = size - start;
+
+            int parallelism = executor instanceof ForkJoinPool
+                    ? ((ForkJoinPool) executor).getParallelism()
+                    : Runtime.getRuntime().availableProcessors();
+            long chunks = Math.max(Math.min(length / MIN_CHUNK_SIZE, 4L * parallelism),
+                    (length + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+            chunks = Math.max(chunks, 1);
+
+            List<Callable<Chunk>> tasks = new ArrayList<>();
+            long from = start;
+            for (long k = 1; k <= chunks; k++) {
+                long to = k == chunks ? size : Math.max(skipLines(channel, start + length * k / chunks - 1, 1), from);
+                if (to > from) {
+                    long chunkStart = from;
+                    long chunkEnd = to;
+                    tasks.add(() -> new Chunk(channel, chunkStart, chunkEnd).parse());
+                }
+                from = to;
+            }
+
+            List<Chunk> parsed = new ArrayList<>(tasks.size());
+            List<Future<Chunk>> futures = executor.invokeAll(tasks);
+            try {
+                for (Future<Chunk> future : futures) {
+                    parsed.add(future.get());
+                }
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+
+                throw new IllegalStateException("Parsing of a chunk of " + path + " failed", e.getCause());
+            }
+
+            return concatenate(parsed);
+        }
+    }
+
+    /**
+     * Concatenates the columns of the parsed chunks, in file order.
+     * @param chunks the parsed chunks
+     * @return the columns of the whole file
+     */
+    private static double[][] concatenate(List<Chunk> chunks) {
+        int width = -1;
+        long rows = 0;
+
+        for (Chunk chunk : chunks) {
+            if (chunk.rows == 0) {
+                continue;
+            }
+
+            if (width != -1 && chunk.width != width) {
+                throw new IllegalArgumentException("Line at byte " + chunk.firstLine + " has " + chunk.width
+                        + " values instead of " + width);
+            }
+            width = chunk.width;
+            rows += chunk.rows;
+        }
+
+        if (width == -1) {
+            return new double[0][];
+        }
+
+        if (rows > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many rows to load into arrays: " + rows);
+        }
+
+        double[][] columns = new double[width][(int) rows];
+        int row = 0;
+        for (Chunk chunk : chunks) {
+            for (int j = 0; j < chunk.width && chunk.rows > 0; j++) {
+                System.arraycopy(chunk.columns[j], 0, columns[j], row, chunk.rows);
+            }
+            row += chunk.rows;
+        }
+
+        return columns;
+    }
+
+    /**
+     * Finds the start of the line following the supplied number of line breaks, searching from the supplied position.
+     * @param channel the file
+     * @param position the position to start searching from
+     * @param lines the number of line breaks to skip
+     * @return the position of the first byte after the last line break skipped, or the size of the file
+     * @throws IOException if the file cannot be read
+     */
+    private static long skipLines(FileChannel channel, long position, int lines) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+
+        while (lines > 0) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                return channel.size();
+            }
+
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n' && --lines == 0) {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+
+        return position;
+    }
+
+    /**
+     * Class representing a byte range of the file starting at a line boundary, parsed into primitive columns.
+     */
+    private static final class Chunk {
+
+        /** The mapped bytes of the range*/
+        private final ByteBuffer bytes;
+        /** The position in the file of the first byte of the range*/
+        private final long start;
+        /** The parsed columns, with room for more rows than parsed*/
+        private double[][] columns;
+        /** The number of values per line, -1 until the first data line is parsed*/
+        private int width = -1;
+        /** The number of rows parsed*/
+        private int rows;
+        /** The position in the file of the first data line, for error messages*/
+        private long firstLine;
+        /** The last value parsed*/
+        private double value;
+
+        /**
+         * Maps the supplied range of the file.
+         * @param channel the file
+         * @param start the position of the first byte of the range, at the start of a line
+         * @param end the position after the last byte of the range, at the start of a line or the end of the file
+         * @throws IOException if the range cannot be mapped
+         */
+        private Chunk(FileChannel channel, long start, long end) throws IOException {
+            this.bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            this.start = start;
+        }
+
+        /**
+         * Parses every line of the range.
+         * @return this chunk, with its columns filled
+         */
+        private Chunk parse() {
+            int n = bytes.limit();
+            int i = 0;
+            double[] row = new double[0];
+
+            while (i < n) {
+                int lineStart = i;
+                while (i < n && isBlank(bytes.get(i))) {
+                    i++;
+                }
+
+                if (i == n) {
+                    break;
+                }
+
+                byte b = bytes.get(i);
+                if (b == '\n') {
+                    i++;
+                    continue;
+                }
+
+                if (b == '#' || (b == '/' && i + 1 < n && bytes.get(i + 1) == '/')) {
+                    while (i < n && bytes.get(i) != '\n') {
+                        i++;
+                    }
+                    i++;
+                    continue;
+                }
+
+                int count = 0;
+                while (i < n && (b = bytes.get(i)) != '\n') {
+                    if (isBlank(b) || b == ',' || b == ';') {
+                        i++;
+                        continue;
+                    }
+
+                    i = parseNumber(i, n);
+                    if (count == row.length) {
+                        row = Arrays.copyOf(row, Math.max(2 * row.length, 4));
+                    }
+                    row[count++] = value;
+                }
+                i++;
+
+                //a line made only of separators is skipped like a blank line
+                if (count == 0) {
+                    continue;
+                }
+
+                addRow(row, count, lineStart);
+            }
+
+            return this;
+        }
+
+        /**
+         * Appends a parsed line to the columns.
+         * @param row the values of the line
+         * @param count the number of values of the line
+         * @param lineStart the position in the range of the start of the line
+         */
+        private void addRow(double[] row, int count, int lineStart) {
+            if (width == -1) {
+                width = count;
+                firstLine = start + lineStart;
+                columns = new double[width][INITIAL_ROWS];
+            } else if (count != width) {
+                throw new IllegalArgumentException("Line at byte " + (start + lineStart) + " has " + count
+                        + " values instead of " + width);
+            }
+
+            if (rows == columns[0].length) {
+                for (int j = 0; j < width; j++) {
+                    columns[j] = Arrays.copyOf(columns[j], 2 * rows);
+                }
+            }
+
+            for (int j = 0; j < width; j++) {
+                columns[j][rows] = row[j];
+            }
+            rows++;
+        }
+
+        /**
+         * Parses the number starting at the supplied index into <em>value</em>. Decimal numbers with up to 18
+         * significant digits whose mantissa and power of ten are exactly representable are parsed without allocating,
+         * with a single correctly rounded multiplication or division; any other token falls back to
+         * <em>Double.parseDouble</em>.
+         * @param i the index of the first byte of the number
+         * @param n the index after the last byte of the range
+         * @return the index after the last byte of the number
+         */
+        private int parseNumber(int i, int n) {
+            int tokenStart = i;
+            byte b = bytes.get(i);
+            boolean negative = b == '-';
+            if (b == '-' || b == '+') {
+                i++;
+            }
+
+            long mantissa = 0;
+            int significantDigits = 0;
+            int digits = 0;
+            int exponent = 0;
+
+            while (i < n && (b = bytes.get(i)) >= '0' && b <= '9') {
+                mantissa = 10 * mantissa + (b - '0');
+                significantDigits += mantissa == 0 ? 0 : 1;
+                digits++;
+                i++;
+            }
+
+            if (i < n && bytes.get(i) == '.') {
+                i++;
+                while (i < n && (b = bytes.get(i)) >= '0' && b <= '9') {
+                    mantissa = 10 * mantissa + (b - '0');
+                    significantDigits += mantissa == 0 ? 0 : 1;
+                    digits++;
+                    exponent--;
+                    i++;
+                }
+            }
+
+            if (digits > 0 && i < n && ((b = bytes.get(i)) == 'e' || b == 'E')) {
+                i++;
+                boolean negativeExponent = i < n && bytes.get(i) == '-';
+                if (i < n && (bytes.get(i) == '-' || bytes.get(i) == '+')) {
+                    i++;
+                }
+
+                int explicitExponent = 0;
+                int exponentDigits = 0;
+                while (i < n && (b = bytes.get(i)) >= '0' && b <= '9') {
+                    explicitExponent = Math.min(10 * explicitExponent + (b - '0'), 100000);
+                    exponentDigits++;
+                    i++;
+                }
+
+                exponent += negativeExponent ? -explicitExponent : explicitExponent;
+                digits = exponentDigits == 0 ? 0 : digits;
+            }
+
+            boolean endOfToken = i == n || isSeparator(bytes.get(i));
+            //up to 18 significant digits the mantissa cannot overflow the long, so the bound on it is meaningful
+            if (endOfToken && digits > 0 && significantDigits <= 18 && mantissa < (1L << 53)
+                    && Math.abs(exponent) < POWERS_OF_TEN.length) {
+                double magnitude = exponent < 0
+                        ? mantissa / POWERS_OF_TEN[-exponent]
+                        : mantissa * POWERS_OF_TEN[exponent];
+                value = negative ? -magnitude : magnitude;
+                return i;
+            }
+
+            while (i < n && !isSeparator(bytes.get(i))) {
+                i++;
+            }
+
+            byte[] token = new byte[i - tokenStart];
+            for (int k = 0; k < token.length; k++) {
+                token[k] = bytes.get(tokenStart + k);
+            }
+
+            try {
+                value = Double.parseDouble(new String(token, StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                throw new NumberFormatException("Malformed number at byte " + (start + tokenStart) + ": "
+                        + new String(token, StandardCharsets.US_ASCII));
+            }
+            return i;
+        }
+
+        /**
+         * Is the supplied byte a space, a tab or a carriage return?
+         * @param b the byte
+         * @return true if the byte is blank
+         */
+        private static boolean isBlank(byte b) {
+            return b == ' ' || b == '\t' || b == '\r';
+        }
+
+        /**
+         * Does the supplied byte end a number?
+         * @param b the byte
+         * @return true if the byte is blank, a separator or a line break
+         */
+        private static boolean isSeparator(byte b) {
+            return isBlank(b) || b == ',' || b == ';' || b == '\n';
+        }
+    }
+}
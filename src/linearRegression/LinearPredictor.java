@@ -0,0 +1,190 @@
+package linearRegression;
+
+import Utils.Predictor;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * Class representing a fitted linear model detached from its training data: an immutable flat array of coefficients,
+ * intercept first, y = b0 + b1x1 + ... + bpxp. It is what multiple linear regressions predict with, so its predictions
+ * are exactly theirs, and it can be shared between threads.
+ * @author gorosgobe
+ */
+public final class LinearPredictor implements Predictor {
+
+    /** The coefficients, intercept first*/
+    private final double[] coefficients;
+    /** The number of independent variables of each point*/
+    private final int numberOfIndependentVariables;
+
+    /**
+     * Constructs a predictor with the supplied coefficients, which are copied.
+     * @param coefficients the coefficients, intercept first
+     */
+    public LinearPredictor(double[] coefficients) {
+        if (coefficients.length == 0) {
+            throw new IllegalArgumentException("A linear model has at least an intercept");
+        }
+
+        this.coefficients = coefficients.clone();
+        this.numberOfIndependentVariables = coefficients.length - 1;
+    }
+
+    /**
+     * Gets a prediction given the independent variables.
+     * @param independentVars the independent variables
+     * @return the prediction of the model
+     */
+    @Override
+    public double getPrediction(double... independentVars) {
+        if (independentVars.length != numberOfIndependentVariables) {
+            throw new IllegalArgumentException("Model predicts from " + numberOfIndependentVariables
+                    + " independent variables");
+        }
+
+        double[] c = coefficients;
+        double result = c[0];
+
+        for (int j = 0; j < numberOfIndependentVariables; j++) {
+            result += c[j + 1] * independentVars[j];
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets the predictions for every row of a row-major block of independent variables, according to the model.
+     * @param independentVars the row-major block with the independent variables of each point as its rows
+     * @param predictions the array the predictions are written to, one per row
+     */
+    public void predict(double[] independentVars, double[] predictions) {
+        if (independentVars.length != predictions.length * numberOfIndependentVariables) {
+            throw new IllegalArgumentException("Block must have one row of independent variables per prediction");
+        }
+
+        predict(independentVars, 0, predictions, 0, predictions.length);
+    }
+
+    /**
+     * Gets the predictions for the supplied number of rows of a row-major block of independent variables, according to
+     * the model. The product of the block and the coefficients is computed in a single loop over the block,
+     * without allocating, and each prediction is exactly the one returned by <em>getPrediction</em>.
+     * @param independentVars the row-major block with the independent variables of each point as its rows
+     * @param blockOffset the index of the first independent variable of the first row
+     * @param predictions the array the predictions are written to
+     * @param predictionsOffset the index the first prediction is written to
+     * @param rows the number of rows to predict
+     */
+    public void predict(double[] independentVars, int blockOffset, double[] predictions, int predictionsOffset,
+                        int rows) {
+        int p = numberOfIndependentVariables;
+        if (blockOffset < 0 || predictionsOffset < 0 || rows < 0
+                || (long) blockOffset + (long) rows * p > independentVars.length
+                || predictionsOffset + rows > predictions.length) {
+            throw new IndexOutOfBoundsException("Range is not within the arrays");
+        }
+
+        double[] c = coefficients;
+        int i = 0;
+
+        //four rows at a time, so their independent sums overlap in the pipeline
+        for (; i + 3 < rows; i += 4) {
+            int row0 = blockOffset + i * p;
+            int row1 = row0 + p;
+            int row2 = row1 + p;
+            int row3 = row2 + p;
+            double r0 = c[0];
+            double r1 = r0;
+            double r2 = r0;
+            double r3 = r0;
+
+            for (int j = 0; j < p; j++) {
+                double coefficient = c[j + 1];
+                r0 += coefficient * independentVars[row0 + j];
+                r1 += coefficient * independentVars[row1 + j];
+                r2 += coefficient * independentVars[row2 + j];
+                r3 += coefficient * independentVars[row3 + j];
+            }
+
+            predictions[predictionsOffset + i] = r0;
+            predictions[predictionsOffset + i + 1] = r1;
+            predictions[predictionsOffset + i + 2] = r2;
+            predictions[predictionsOffset + i + 3] = r3;
+        }
+
+        for (; i < rows; i++) {
+            int row = blockOffset + i * p;
+            double result = c[0];
+            for (int j = 0; j < p; j++) {
+                result += c[j + 1] * independentVars[row + j];
+            }
+            predictions[predictionsOffset + i] = result;
+        }
+    }
+
+    /**
+     * Gets the predictions for a row-major block of independent variables held in a buffer, such as a direct or
+     * memory-mapped one, according to the model. One prediction is written for every remaining entry of
+     * <em>predictions</em>, reading the rows from the position of <em>independentVars</em>. The positions of both buffers
+     * are not modified.
+     * @param independentVars the buffer with the independent variables of each point as its rows
+     * @param predictions the buffer the predictions are written to
+     */
+    public void predict(DoubleBuffer independentVars, DoubleBuffer predictions) {
+        int p = numberOfIndependentVariables;
+        int rows = predictions.remaining();
+        if (independentVars.remaining() < (long) rows * p) {
+            throw new IllegalArgumentException("Block must have one row of independent variables per prediction");
+        }
+
+        if (independentVars.hasArray() && predictions.hasArray()) {
+            predict(independentVars.array(), independentVars.arrayOffset() + independentVars.position(),
+                    predictions.array(), predictions.arrayOffset() + predictions.position(), rows);
+            return;
+        }
+
+        double[] c = coefficients;
+        int blockStart = independentVars.position();
+        int predictionsStart = predictions.position();
+
+        for (int i = 0; i < rows; i++) {
+            int row = blockStart + i * p;
+            double result = c[0];
+            for (int j = 0; j < p; j++) {
+                result += c[j + 1] * independentVars.get(row + j);
+            }
+            predictions.put(predictionsStart + i, result);
+        }
+    }
+
+    /**
+     * Gets a prediction for a single independent variable, without allocating an array.
+     * @param value the value (x) we want to get a prediction for
+     * @return the prediction of the model
+     */
+    public double getPrediction(double value) {
+        if (numberOfIndependentVariables != 1) {
+            throw new IllegalArgumentException("Model predicts from " + numberOfIndependentVariables
+                    + " independent variables");
+        }
+
+        return coefficients[0] + coefficients[1] * value;
+    }
+
+    /**
+     * Gets the coefficients of the model.
+     * @return a copy of the coefficients, intercept first
+     */
+    public double[] getCoefficients() {
+        return coefficients.clone();
+    }
+
+    /**
+     * Gets the number of independent variables the model predicts from.
+     * @return the number of independent variables
+     */
+    @Override
+    public int getNumberOfIndependentVariables() {
+        return numberOfIndependentVariables;
+    }
+}
@@ -1,13 +1,16 @@
 package linearRegression;
 
-import Utils.MatrixUtils;
+import Utils.ColumnarDataset;
+import Utils.DenseMatrix;
 import Utils.MultiplePoint;
 import Utils.QRDecomposition;
+import Utils.RegressionDiagnostics;
+import Utils.TSQRDecomposition;
 
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
-import static Utils.QRDecomposition.solveByBackSubstitution;
 
 
 /**
@@ -17,46 +20,83 @@ import static Utils.QRDecomposition.solveByBackSubstitution;
  */
 public class MultipleLinearRegression {
 
-    /** The list of MultiplePoint representing the training data*/
-    private final List<MultiplePoint> points;
-    /** The coefficients to compute*/
-    private double[][] coefficients;
+    /** The dataset holding the training data by columns*/
+    private final ColumnarDataset dataset;
+    /** The number of independent variables of each point*/
+    private final int numberOfIndependentVariables;
+    /** The immutable predictor with the computed coefficients, used to evaluate predictions*/
+    private final LinearPredictor predictor;
 
     /**
-     * Constructs a MultipleLinearRegression. Coefficients are computed upon creation of the object.
+     * Constructs a MultipleLinearRegression. Coefficients are computed upon creation of the object. The points are copied
+     * into a columnar dataset, so the list is not kept by the regression.
      * @param points the list containing the points with multiple independent variables and one dependent variable.
      */
     public MultipleLinearRegression(List<MultiplePoint> points) {
-        this.points = points;
-        checkAllPointsHaveSameNumberXs();
-        computeCoefficients();
+        this(ColumnarDataset.fromMultiplePoints(points));
     }
 
     /**
-     * Checks all points in the training data have the same number of independent variables
+     * Constructs a MultipleLinearRegression from a columnar dataset, which is not copied. Coefficients are computed upon
+     * creation of the object.
+     * @param dataset the dataset with the independent variables and the dependent variable of each point
      */
-    private void checkAllPointsHaveSameNumberXs() {
-        int size = points.get(0).getXs().size();
-
-        boolean haveSameNumber = points.stream()
-                .filter(i -> i.getXs().size() == size)
-                .collect(Collectors.toList()).size() == points.size();
+    public MultipleLinearRegression(ColumnarDataset dataset) {
+        this.dataset = dataset;
+        this.numberOfIndependentVariables = dataset.getNumberOfIndependentVariables();
+        this.predictor = new LinearPredictor(computeCoefficients(generateDesignMatrix(), generateResponseVector()));
+    }
 
-        if (!haveSameNumber) {
-            throw new IllegalArgumentException("All points supplied must have the same number of independent variables");
+    /**
+     * Constructs a MultipleLinearRegression from a dense matrix of independent variables, with one row per point, and the
+     * column vector of the dependent variables. Coefficients are computed upon creation of the object. The training data
+     * is not kept, so <em>getPoints</em> returns null.
+     * @param independentVars the matrix with the independent variables of each point as its rows
+     * @param responses the column vector with the dependent variable of each point
+     */
+    public MultipleLinearRegression(DenseMatrix independentVars, DenseMatrix responses) {
+        if (independentVars.getRows() != responses.getRows() || responses.getColumns() != 1) {
+            throw new IllegalArgumentException("Responses must be a column vector with one entry per row of independent variables");
         }
+
+        this.dataset = null;
+        this.numberOfIndependentVariables = independentVars.getColumns();
+        this.predictor = new LinearPredictor(computeCoefficients(generateDesignMatrix(independentVars),
+                responses.getColumn(0)));
     }
 
     /**
-     * Computes the coefficients with the training data through QR decomposition and back substitution.
+     * Constructs a MultipleLinearRegression with already computed coefficients, used by the accumulators that fit the
+     * regression without keeping its training data. <em>getPoints</em> returns null.
+     * @param coefficients the coefficients, intercept first, as a column matrix
      */
-    private void computeCoefficients() {
-        double[][] designMatrix = generateDesignMatrix();
-        double[][] responseMatrix = generateResponseMatrix();
+    MultipleLinearRegression(double[][] coefficients) {
+        this.dataset = null;
+        this.numberOfIndependentVariables = coefficients.length - 1;
+
+        double[] solution = new double[coefficients.length];
+        for (int i = 0; i < solution.length; i++) {
+            solution[i] = coefficients[i][0];
+        }
+        this.predictor = new LinearPredictor(solution);
+    }
 
-        QRDecomposition decomp = new QRDecomposition(designMatrix);
-        this.coefficients = solveByBackSubstitution(decomp.getR(), MatrixUtils.multiply(MatrixUtils.transpose(decomp.getQ()), responseMatrix));
+    /**
+     * Computes the coefficients with the training data through QR decomposition and back substitution. Q is never built,
+     * its reflections are applied directly to the response vector. Design matrices with at least
+     * <em>TSQRDecomposition.PARALLEL_THRESHOLD</em> rows are decomposed with TSQR.
+     * @param designMatrix the design matrix of the training data
+     * @param responseVector the response vector of the training data
+     * @return the coefficients, intercept first
+     */
+    private static double[] computeCoefficients(DenseMatrix designMatrix, double[] responseVector) {
+        //the design matrix is only built to be decomposed, so it is factorized in place
+        if (designMatrix.getRows() >= TSQRDecomposition.PARALLEL_THRESHOLD) {
+            //very tall design matrices are factorized by blocks of rows in parallel
+            return new TSQRDecomposition(designMatrix, responseVector, true).solve();
+        }
 
+        return new QRDecomposition(designMatrix, true).solve(responseVector);
     }
 
     /**
@@ -65,73 +105,149 @@ public class MultipleLinearRegression {
      * @return the prediction of the trained model
      */
     public double getPrediction(double... independentVars) {
-        if (independentVars.length != points.get(0).getXs().size()) {
-            throw new IllegalArgumentException();
-        }
+        return predictor.getPrediction(independentVars);
+    }
 
-        double result = 0.0;
+    /**
+     * Gets the predictions for every row of a row-major block of independent variables, according to the trained model.
+     * See <em>LinearPredictor.predict(double[], double[])</em>.
+     * @param independentVars the row-major block with the independent variables of each point as its rows
+     * @param predictions the array the predictions are written to, one per row
+     */
+    public void predict(double[] independentVars, double[] predictions) {
+        predictor.predict(independentVars, predictions);
+    }
 
-        for (double i = 0.0; i < coefficients.length; i++) {
-            result += coefficients[(int) i][0] * (i == 0.0 ? 1 : independentVars[(int) i - 1]);
-        }
+    /**
+     * Gets the predictions for the supplied number of rows of a row-major block of independent variables, according to
+     * the trained model. See <em>LinearPredictor.predict(double[], int, double[], int, int)</em>.
+     * @param independentVars the row-major block with the independent variables of each point as its rows
+     * @param blockOffset the index of the first independent variable of the first row
+     * @param predictions the array the predictions are written to
+     * @param predictionsOffset the index the first prediction is written to
+     * @param rows the number of rows to predict
+     */
+    public void predict(double[] independentVars, int blockOffset, double[] predictions, int predictionsOffset,
+                        int rows) {
+        predictor.predict(independentVars, blockOffset, predictions, predictionsOffset, rows);
+    }
 
-        return result;
+    /**
+     * Gets the predictions for a row-major block of independent variables held in a buffer, according to the trained
+     * model. See <em>LinearPredictor.predict(DoubleBuffer, DoubleBuffer)</em>.
+     * @param independentVars the buffer with the independent variables of each point as its rows
+     * @param predictions the buffer the predictions are written to
+     */
+    public void predict(DoubleBuffer independentVars, DoubleBuffer predictions) {
+        predictor.predict(independentVars, predictions);
     }
 
+    /**
+     * Gets the fitted model detached from the training data, which it does not reference.
+     * @return the immutable predictor of the regression
+     */
+    public LinearPredictor toPredictor() {
+        return predictor;
+    }
 
     /**
      * Generates the design matrix with the training data.
-     * @return the design matrix of the training data supplied in the constructor.
+     * @return the design matrix of the training data supplied in the constructor, contiguous and column-major.
      */
     // Matrix with the x of the points
-    private double[][] generateDesignMatrix() {
+    private DenseMatrix generateDesignMatrix() {
 
-        //width is points.get(0).getXs().size() + 1 as column 0 is a column of 1s
-        double[][] designMatrix = new double[points.size()][points.get(0).getXs().size() + 1];
+        //width is the number of independent variables + 1 as column 0 is a column of 1s
+        int height = dataset.size();
+        DenseMatrix designMatrix = DenseMatrix.columnMajor(height, numberOfIndependentVariables + 1);
+        double[] data = designMatrix.getData();
 
         //sets first column to be 1
-        for (int i = 0; i < designMatrix.length; i++) {
-            designMatrix[i][0] = 1;
-        }
+        Arrays.fill(data, 0, height, 1.0);
 
-        //fills up the matrix with the points
-        for (int i = 0; i < designMatrix.length; i++) {
-            for (int j = 1; j < designMatrix[0].length; j++) {
-                designMatrix[i][j] = points.get(i).getXs().get(j - 1);
-            }
+        //copies every column of the dataset in bulk
+        for (int j = 1; j <= numberOfIndependentVariables; j++) {
+            dataset.getXColumn(j - 1).get(data, j * height, height);
         }
 
         return designMatrix;
     }
 
     /**
-     * Generates the response matrix with the training data.
-     * @return the response matrix with the training data.
+     * Generates the design matrix from a dense matrix of independent variables, prepending the column of 1s.
+     * @param independentVars the matrix with the independent variables of each point as its rows
+     * @return the design matrix, contiguous and column-major
      */
-    //Matrix with the y of the points
-    private double[][] generateResponseMatrix() {
-        double[][] responseMatrix = new double[points.size()][1];
+    private static DenseMatrix generateDesignMatrix(DenseMatrix independentVars) {
+        int height = independentVars.getRows();
+        DenseMatrix designMatrix = DenseMatrix.columnMajor(height, independentVars.getColumns() + 1);
+        double[] data = designMatrix.getData();
+
+        Arrays.fill(data, 0, height, 1.0);
 
-        for (int i = 0; i < responseMatrix.length; i++) {
-            responseMatrix[i][0] = points.get(i).getY();
+        for (int j = 1; j < designMatrix.getColumns(); j++) {
+            for (int i = 0; i < height; i++) {
+                data[j * height + i] = independentVars.get(i, j - 1);
+            }
         }
 
-        return responseMatrix;
+        return designMatrix;
+    }
+
+    /**
+     * Generates the response vector with the training data.
+     * @return the response vector with the training data.
+     */
+    //Vector with the y of the points
+    private double[] generateResponseVector() {
+        double[] responseVector = new double[dataset.size()];
+        dataset.getYColumn().get(responseVector);
+        return responseVector;
     }
 
     /**
-     * Gets the points used as training data.
-     * @return a list with the points used as training data.
+     * Gets the points used as training data, built as a new list from the stored columns. Every call allocates a copy of
+     * the training data, so callers should keep the list rather than call this method repeatedly, or use
+     * <em>getDataset</em>.
+     * @return a new list with the points used as training data, or null if the regression did not keep its training data.
      */
     public List<MultiplePoint> getPoints() {
-        return points;
+        return dataset == null ? null : dataset.toMultiplePoints();
+    }
+
+    /**
+     * Gets the training data as stored by the regression.
+     * @return the columnar dataset with the training data, or null if the regression did not keep its training data.
+     */
+    public ColumnarDataset getDataset() {
+        return dataset;
+    }
+
+    /**
+     * Computes the leave-one-out and influence diagnostics of the regression on its training data, in closed form from a
+     * QR decomposition of the design matrix instead of one refit per point.
+     * @return the diagnostics of the regression, with the coefficients intercept first
+     */
+    public RegressionDiagnostics getDiagnostics() {
+        if (dataset == null) {
+            throw new IllegalStateException("The regression did not keep its training data");
+        }
+
+        //the design matrix is only built to be decomposed, so it is factorized in place
+        return new RegressionDiagnostics(new QRDecomposition(generateDesignMatrix(), true), generateResponseVector());
     }
 
     /**
      * Gets the coefficients computed with the training data.
-     * @return the coefficients computed with the training data.
+     * @return a new column matrix with the coefficients computed with the training data, intercept first.
      */
     public double[][] getCoefficients() {
+        double[] solution = predictor.getCoefficients();
+        double[][] coefficients = new double[solution.length][1];
+        for (int i = 0; i < solution.length; i++) {
+            coefficients[i][0] = solution[i];
+        }
+
         return coefficients;
     }
 
@@ -0,0 +1,307 @@
+package linearRegression;
+
+import Utils.LUDecomposition;
+import Utils.MultiplePoint;
+
+import java.util.List;
+import java.util.stream.Collector;
+
+/**
+ * Class representing a multiple linear regression fitted incrementally from its sufficient statistics. Instead of the raw
+ * XTX, XTy and yTy, which lose precision through cancellation when the data is far from the origin, the accumulator keeps
+ * the count, the means of the independent variables and of y, and the matrix of sums of products of their deviations
+ * from the means, updated with Welford's method. Memory is O(p<sup>2</sup>) whatever the number of points, accumulators
+ * filled on different threads or shards merge associatively, and the raw Gram matrix can still be recovered.
+ * @author gorosgobe
+ */
+public class MultipleLinearRegressionAccumulator {
+
+    /** The number of independent variables*/
+    private final int numberOfIndependentVariables;
+    /** The number of points added*/
+    private long count;
+    /** The means of the independent variables, followed by the mean of y*/
+    private final double[] means;
+    /** Row-major sums of products of the deviations of (x1, ..., xp, y), only the upper triangle is kept up to date*/
+    private final double[] coMoments;
+    /** Scratch space for the deviations of the point being added*/
+    private final double[] deltas;
+
+    /**
+     * Constructs an empty accumulator for points with the supplied number of independent variables.
+     * @param numberOfIndependentVariables the number of independent variables of each point
+     */
+    public MultipleLinearRegressionAccumulator(int numberOfIndependentVariables) {
+        if (numberOfIndependentVariables < 1) {
+            throw new IllegalArgumentException("Points must have at least one independent variable");
+        }
+
+        int width = numberOfIndependentVariables + 1;
+        this.numberOfIndependentVariables = numberOfIndependentVariables;
+        this.means = new double[width];
+        this.coMoments = new double[width * width];
+        this.deltas = new double[width];
+    }
+
+    /**
+     * Gets a collector accumulating points into a MultipleLinearRegressionAccumulator, so a parallel stream of points is
+     * reduced with one accumulator per worker merged at the end.
+     * @param numberOfIndependentVariables the number of independent variables of each point
+     * @return the collector
+     */
+    public static Collector<MultiplePoint, ?, MultipleLinearRegressionAccumulator> collector(int numberOfIndependentVariables) {
+        return Collector.of(() -> new MultipleLinearRegressionAccumulator(numberOfIndependentVariables),
+                MultipleLinearRegressionAccumulator::add,
+                (first, second) -> {
+                    first.merge(second);
+                    return first;
+                });
+    }
+
+    /**
+     * Adds a point to the accumulator.
+     * @param y the dependent variable of the point
+     * @param independentVars the independent variables of the point
+     */
+    public void add(double y, double... independentVars) {
+        checkNumberOfIndependentVariables(independentVars.length);
+        addRow(independentVars, 0, y);
+    }
+
+    /**
+     * Adds a point to the accumulator.
+     * @param point the point to add
+     */
+    public void add(MultiplePoint point) {
+        List<Double> xs = point.getXs();
+        checkNumberOfIndependentVariables(xs.size());
+
+        count++;
+        for (int j = 0; j < numberOfIndependentVariables; j++) {
+            deltas[j] = xs.get(j) - means[j];
+        }
+        deltas[numberOfIndependentVariables] = point.getY() - means[numberOfIndependentVariables];
+
+        updateWithDeltas();
+    }
+
+    /**
+     * Adds a point whose independent variables are stored contiguously in the supplied array.
+     * @param independentVars the array holding the independent variables
+     * @param offset the index of the first independent variable of the point
+     * @param y the dependent variable of the point
+     */
+    public void add(double[] independentVars, int offset, double y) {
+        if (offset < 0 || independentVars.length - offset < numberOfIndependentVariables) {
+            throw new IllegalArgumentException("Array does not hold all the independent variables of the point");
+        }
+
+        addRow(independentVars, offset, y);
+    }
+
+    /**
+     * Adds a point whose independent variables are stored contiguously in the supplied array, without checking bounds.
+     * @param independentVars the array holding the independent variables
+     * @param offset the index of the first independent variable of the point
+     * @param y the dependent variable of the point
+     */
+    private void addRow(double[] independentVars, int offset, double y) {
+        count++;
+        for (int j = 0; j < numberOfIndependentVariables; j++) {
+            deltas[j] = independentVars[offset + j] - means[j];
+        }
+        deltas[numberOfIndependentVariables] = y - means[numberOfIndependentVariables];
+
+        updateWithDeltas();
+    }
+
+    /**
+     * Adds every point of a row-major block of independent variables, one row per point.
+     * @param independentVars the row-major block with the independent variables of each point
+     * @param ys the dependent variable of each point
+     */
+    public void addAll(double[] independentVars, double[] ys) {
+        if (independentVars.length != ys.length * numberOfIndependentVariables) {
+            throw new IllegalArgumentException("Block must have one row of independent variables per dependent variable");
+        }
+
+        for (int i = 0; i < ys.length; i++) {
+            addRow(independentVars, i * numberOfIndependentVariables, ys[i]);
+        }
+    }
+
+    /**
+     * Applies Welford's update with the deviations of the point just counted from the previous means.
+     */
+    private void updateWithDeltas() {
+        int width = deltas.length;
+
+        for (int j = 0; j < width; j++) {
+            means[j] += deltas[j] / count;
+        }
+
+        //the deviation from the new mean is (n - 1) / n times the deviation from the previous one
+        double factor = (count - 1.0) / count;
+        for (int i = 0; i < width; i++) {
+            double scaled = deltas[i] * factor;
+            int rowOffset = i * width;
+            for (int j = i; j < width; j++) {
+                coMoments[rowOffset + j] += scaled * deltas[j];
+            }
+        }
+    }
+
+    /**
+     * Merges the supplied accumulator into this one, as if all of its points had been added to this one.
+     * @param other the accumulator to merge, which is left untouched
+     */
+    public void merge(MultipleLinearRegressionAccumulator other) {
+        checkNumberOfIndependentVariables(other.numberOfIndependentVariables);
+
+        if (other.count == 0) {
+            return;
+        }
+
+        int width = means.length;
+        long total = count + other.count;
+        double weight = (double) count * other.count / total;
+
+        for (int j = 0; j < width; j++) {
+            deltas[j] = other.means[j] - means[j];
+        }
+
+        for (int i = 0; i < width; i++) {
+            int rowOffset = i * width;
+            for (int j = i; j < width; j++) {
+                coMoments[rowOffset + j] += other.coMoments[rowOffset + j] + deltas[i] * deltas[j] * weight;
+            }
+            means[i] += deltas[i] * other.count / total;
+        }
+
+        count = total;
+    }
+
+    /**
+     * Checks the supplied number of independent variables is the one of this accumulator.
+     * @param number the number of independent variables to check
+     */
+    private void checkNumberOfIndependentVariables(int number) {
+        if (number != numberOfIndependentVariables) {
+            throw new IllegalArgumentException("All points supplied must have the same number of independent variables");
+        }
+    }
+
+    /**
+     * Gets the sum of products of the deviations of the i-th and j-th variables, where index p is y.
+     * @param i the first variable
+     * @param j the second variable
+     * @return the sum of products of the deviations
+     */
+    private double coMoment(int i, int j) {
+        int width = means.length;
+        return i <= j ? coMoments[i * width + j] : coMoments[j * width + i];
+    }
+
+    /**
+     * Computes the coefficients of the regression for the points added so far. The slopes solve the centred normal
+     * equations, and the intercept is the mean of y minus the slopes times the means of the independent variables.
+     * @return the coefficients, intercept first, in the same layout as <em>MultipleLinearRegression.getCoefficients</em>
+     */
+    public double[][] getCoefficients() {
+        int p = numberOfIndependentVariables;
+        if (count <= p) {
+            throw new IllegalStateException("At least " + (p + 1) + " points are needed to compute the coefficients");
+        }
+
+        double[][] centredGram = new double[p][p];
+        double[] centredXTy = new double[p];
+        for (int i = 0; i < p; i++) {
+            for (int j = 0; j < p; j++) {
+                centredGram[i][j] = coMoment(i, j);
+            }
+            centredXTy[i] = coMoment(i, p);
+        }
+
+        double[] slopes = new LUDecomposition(centredGram).solve(centredXTy);
+
+        double[][] coefficients = new double[p + 1][1];
+        double intercept = means[p];
+        for (int i = 0; i < p; i++) {
+            coefficients[i + 1][0] = slopes[i];
+            intercept -= slopes[i] * means[i];
+        }
+        coefficients[0][0] = intercept;
+
+        return coefficients;
+    }
+
+    /**
+     * Builds a MultipleLinearRegression with the coefficients for the points added so far. The regression does not keep
+     * any training points.
+     * @return the fitted regression
+     */
+    public MultipleLinearRegression toMultipleLinearRegression() {
+        return new MultipleLinearRegression(getCoefficients());
+    }
+
+    /**
+     * Recovers the Gram matrix XTX of the design matrix, including its leading column of 1s, of the points added so far.
+     * @return the (p + 1) x (p + 1) Gram matrix
+     */
+    public double[][] getGramMatrix() {
+        int p = numberOfIndependentVariables;
+        double[][] gram = new double[p + 1][p + 1];
+
+        gram[0][0] = count;
+        for (int i = 0; i < p; i++) {
+            gram[0][i + 1] = count * means[i];
+            gram[i + 1][0] = count * means[i];
+            for (int j = 0; j < p; j++) {
+                gram[i + 1][j + 1] = coMoment(i, j) + count * means[i] * means[j];
+            }
+        }
+
+        return gram;
+    }
+
+    /**
+     * Recovers XTy for the design matrix, including its leading column of 1s, of the points added so far.
+     * @return the vector XTy with p + 1 entries
+     */
+    public double[] getXTy() {
+        int p = numberOfIndependentVariables;
+        double[] xty = new double[p + 1];
+
+        xty[0] = count * means[p];
+        for (int i = 0; i < p; i++) {
+            xty[i + 1] = coMoment(i, p) + count * means[i] * means[p];
+        }
+
+        return xty;
+    }
+
+    /**
+     * Recovers yTy, the sum of the squares of the dependent variables added so far.
+     * @return yTy
+     */
+    public double getYTy() {
+        int p = numberOfIndependentVariables;
+        return coMoment(p, p) + count * means[p] * means[p];
+    }
+
+    /**
+     * Gets the number of points added.
+     * @return the number of points added
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the number of independent variables of the points.
+     * @return the number of independent variables
+     */
+    public int getNumberOfIndependentVariables() {
+        return numberOfIndependentVariables;
+    }
+}
@@ -1,5 +1,7 @@
 package linearRegression;
 
+import Utils.BivariateMoments;
+import Utils.ColumnarDataset;
 import Utils.Point;
 import Utils.StatisticUtils;
 
@@ -13,21 +15,37 @@ import java.util.List;
 public class SimpleLinearRegression {
 
     /* Line of form y = ax + b, where a is the slope and b is the intercept */
-    /** The list of Points representing the training data*/
-    private final List<Point> points;
+    /** The dataset holding the training data by columns*/
+    private final ColumnarDataset dataset;
     /** The slope coefficient, <em>a</em>x + b*/
-    private double slopeCoefficient;
+    private final double slopeCoefficient;
     /** The intercept coefficient, ax + <em>b</em>*/
-    private double interceptCoefficient;
+    private final double interceptCoefficient;
 
     /**
-     * Constructor of a simple linear regression. Coefficients are computed upon creation of the object.
+     * Constructor of a simple linear regression. Coefficients are computed upon creation of the object, in a single pass
+     * over the points.
      * @param points the training points
      */
     public SimpleLinearRegression(List<Point> points) {
-        this.points = points;
-        this.slopeCoefficient = getSlopeCoefficient(points);
-        this.interceptCoefficient = getInterceptCoefficient(points, slopeCoefficient);
+        this(ColumnarDataset.fromPoints(points));
+    }
+
+    /**
+     * Constructor of a simple linear regression from a columnar dataset with a single independent variable, which is not
+     * copied. Coefficients are computed upon creation of the object.
+     * @param dataset the training data
+     */
+    public SimpleLinearRegression(ColumnarDataset dataset) {
+        if (dataset.getNumberOfIndependentVariables() != 1) {
+            throw new IllegalArgumentException("Points must have a single independent variable");
+        }
+
+        this.dataset = dataset;
+
+        BivariateMoments moments = StatisticUtils.moments(dataset.getXColumn(0), dataset.getYColumn());
+        this.slopeCoefficient = moments.getSumOfProducts() / moments.getSumOfSquaresX();
+        this.interceptCoefficient = moments.getMeanY() - slopeCoefficient * moments.getMeanX();
     }
 
     /**
@@ -55,18 +73,35 @@ public class SimpleLinearRegression {
         return interceptCoefficient;
     }
 
+    /**
+     * Gets the fitted line detached from the training data, which it does not reference.
+     * @return an immutable predictor with the intercept and the slope coefficients
+     */
+    public LinearPredictor toPredictor() {
+        return new LinearPredictor(new double[] {interceptCoefficient, slopeCoefficient});
+    }
+
+    /**
+     * Gets the training data as stored by the regression.
+     * @return the columnar dataset with the training data
+     */
+    public ColumnarDataset getDataset() {
+        return dataset;
+    }
+
     /**
      * Computes the Root Mean Square Error (RMSE) for the supplied training data,
      * @return
      */
     public double getRootMeanSquareError() {
 
-        double meanSquareError =
-                points.stream()
-                .map(i -> Math.pow(getPrediction(i.getX()) - i.getY(), 2.0))
-                .reduce(0.0, (a, b) -> a + b) / points.size();
+        double sumOfSquares = 0.0;
+        for (int i = 0; i < dataset.size(); i++) {
+            double error = getPrediction(dataset.getX(i)) - dataset.getY(i);
+            sumOfSquares += error * error;
+        }
 
-        return Math.sqrt(meanSquareError);
+        return Math.sqrt(sumOfSquares / dataset.size());
     }
 
     /**
@@ -75,8 +110,8 @@ public class SimpleLinearRegression {
      * @return the slope coefficient of the linear regression for the supplied data
      */
     public static double getSlopeCoefficient(List<Point> pointList) {
-        return StatisticUtils.covariance(pointList)
-                / StatisticUtils.variance(StatisticUtils.getListOfX(pointList));
+        BivariateMoments moments = StatisticUtils.moments(pointList);
+        return moments.getSumOfProducts() / moments.getSumOfSquaresX();
     }
 
     /**
@@ -86,8 +121,8 @@ public class SimpleLinearRegression {
      * @return the intercept coefficient of the linear regression for the supplied data and the slope coefficient.
      */
     public static double getInterceptCoefficient(List<Point> pointList, double slopeCoefficient) {
-        return StatisticUtils.mean(StatisticUtils.getListOfY(pointList))
-                - slopeCoefficient * StatisticUtils.mean(StatisticUtils.getListOfX(pointList));
+        BivariateMoments moments = StatisticUtils.moments(pointList);
+        return moments.getMeanY() - slopeCoefficient * moments.getMeanX();
     }
 
 }
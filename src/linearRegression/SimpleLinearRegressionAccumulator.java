@@ -0,0 +1,122 @@
+package linearRegression;
+
+import Utils.BivariateMoments;
+import Utils.Point;
+
+/**
+ * Class representing a simple linear regression fitted incrementally. Only the count, the means and the second moments of
+ * the points are kept, so points can be streamed one at a time or in batches using O(1) memory, accumulators filled
+ * separately can be merged, and the line y = ax + b can be obtained at any moment.
+ * @author gorosgobe
+ */
+public class SimpleLinearRegressionAccumulator {
+
+    /** The moments of the points added*/
+    private final BivariateMoments moments;
+
+    /**
+     * Constructs an empty accumulator.
+     */
+    public SimpleLinearRegressionAccumulator() {
+        this.moments = new BivariateMoments();
+    }
+
+    /**
+     * Adds a point to the accumulator.
+     * @param x the x of the point
+     * @param y the y of the point
+     */
+    public void add(double x, double y) {
+        moments.add(x, y);
+    }
+
+    /**
+     * Adds a point to the accumulator.
+     * @param point the point to add
+     */
+    public void add(Point point) {
+        moments.add(point.getX(), point.getY());
+    }
+
+    /**
+     * Adds the points formed by the entries of both arrays.
+     * @param xs the xs of the points
+     * @param ys the ys of the points
+     */
+    public void addAll(double[] xs, double[] ys) {
+        moments.addAll(xs, ys);
+    }
+
+    /**
+     * Adds the points formed by the entries of both arrays in the range supplied.
+     * @param xs the xs of the points
+     * @param ys the ys of the points
+     * @param from the first index of the range, inclusive
+     * @param to the last index of the range, exclusive
+     */
+    public void addAll(double[] xs, double[] ys, int from, int to) {
+        moments.addAll(xs, ys, from, to);
+    }
+
+    /**
+     * Merges the supplied accumulator into this one, as if all of its points had been added to this one.
+     * @param other the accumulator to merge, which is left untouched
+     */
+    public void merge(SimpleLinearRegressionAccumulator other) {
+        moments.merge(other.moments);
+    }
+
+    /**
+     * Gets the number of points added.
+     * @return the number of points added
+     */
+    public long getCount() {
+        return moments.getCount();
+    }
+
+    /**
+     * Gets the moments of the points added.
+     * @return a copy of the moments of the points added
+     */
+    public BivariateMoments getMoments() {
+        return moments.copy();
+    }
+
+    /**
+     * Gets the slope coefficient, <em>a</em>x + b, of the points added so far.
+     * @return the slope coefficient
+     */
+    public double getSlopeCoefficient() {
+        return moments.getSumOfProducts() / moments.getSumOfSquaresX();
+    }
+
+    /**
+     * Gets the intercept coefficient, ax + <em>b</em>, of the points added so far.
+     * @return the intercept coefficient
+     */
+    public double getInterceptCoefficient() {
+        return moments.getMeanY() - getSlopeCoefficient() * moments.getMeanX();
+    }
+
+    /**
+     * Gets the prediction for the supplied value, according to the line fitted to the points added so far.
+     * @param value the value to get the prediction of.
+     * @return the prediction for the value supplied.
+     */
+    public double getPrediction(double value) {
+        return value * getSlopeCoefficient() + getInterceptCoefficient();
+    }
+
+    /**
+     * Computes the Root Mean Square Error (RMSE) of the line fitted to the points added so far, from the moments alone. The
+     * residual sum of squares of a least squares line is Syy - Sxy * Sxy / Sxx.
+     * @return the RMSE of the points added so far
+     */
+    public double getRootMeanSquareError() {
+        double residualSumOfSquares = moments.getSumOfSquaresY()
+                - moments.getSumOfProducts() * moments.getSumOfProducts() / moments.getSumOfSquaresX();
+
+        //rounding can leave a tiny negative residual for points lying exactly on a line
+        return Math.sqrt(Math.max(0.0, residualSumOfSquares) / moments.getCount());
+    }
+}
@@ -0,0 +1,375 @@
+package linearRegression;
+
+import java.util.Arrays;
+
+/**
+ * Class representing a multiple linear regression over the last N points of a stream. Instead of refitting the window at
+ * every step, the regression keeps the triangular factor R of the QR decomposition of the window's design matrix, with
+ * its leading column of 1s, together with Q<sup>T</sup>y and the norm of the residuals. Adding the newest point updates
+ * them with Givens rotations, and removing the oldest one downdates them with the hyperbolic scheme of LINPACK's dchdd,
+ * so each step and each solve for the coefficients costs O(p<sup>2</sup>). The window's points are kept in a ring buffer
+ * so the oldest can be removed, and so the factorisation can be rebuilt from scratch if a downdate fails, which happens
+ * when the window without the oldest point is (numerically) rank deficient, and periodically to bound rounding drift.
+ * @author gorosgobe
+ */
+public class SlidingWindowRegression {
+
+    /** The maximum number of points in the window*/
+    private final int windowSize;
+    /** The number of independent variables*/
+    private final int numberOfIndependentVariables;
+    /** The number of downdates after which the factorisation is rebuilt from the window, 0 to never rebuild it*/
+    private final int refitInterval;
+    /** Row-major ring buffer with the independent variables of the points in the window*/
+    private final double[] windowXs;
+    /** Ring buffer with the dependent variables of the points in the window*/
+    private final double[] windowYs;
+    /** The index in the ring buffers of the oldest point*/
+    private int oldest;
+    /** The number of points in the window*/
+    private int size;
+    /** The number of downdates since the factorisation was last rebuilt*/
+    private int downdates;
+    /** Row-major upper triangular factor R, (p + 1) x (p + 1)*/
+    private final double[] r;
+    /** Q<sup>T</sup>y, with p + 1 entries*/
+    private final double[] qty;
+    /** The norm of the residuals of the points in the window*/
+    private double residualNorm;
+    /** Scratch space for the row being added or removed, with its leading 1*/
+    private final double[] row;
+    /** The cosines of the rotations of the last update or downdate*/
+    private final double[] cosines;
+    /** The sines of the rotations of the last update or downdate*/
+    private final double[] sines;
+    /** Scratch space for the coefficients solved for a prediction*/
+    private final double[] coefficients;
+
+    /**
+     * Constructs an empty window that rebuilds its factorisation once every window size downdates, which keeps the
+     * amortised cost of a step at O(p<sup>2</sup>).
+     * @param windowSize the maximum number of points in the window
+     * @param numberOfIndependentVariables the number of independent variables of each point
+     */
+    public SlidingWindowRegression(int windowSize, int numberOfIndependentVariables) {
+        this(windowSize, numberOfIndependentVariables, windowSize);
+    }
+
+    /**
+     * Constructs an empty window.
+     * @param windowSize the maximum number of points in the window
+     * @param numberOfIndependentVariables the number of independent variables of each point
+     * @param refitInterval the number of downdates after which the factorisation is rebuilt from the window, 0 to only
+     *                      rebuild it when a downdate fails
+     */
+    public SlidingWindowRegression(int windowSize, int numberOfIndependentVariables, int refitInterval) {
+        if (numberOfIndependentVariables < 1) {
+            throw new IllegalArgumentException("Points must have at least one independent variable");
+        }
+
+        if (windowSize <= numberOfIndependentVariables) {
+            throw new IllegalArgumentException("Window must hold at least " + (numberOfIndependentVariables + 1) + " points");
+        }
+
+        if (refitInterval < 0) {
+            throw new IllegalArgumentException("Refit interval should be >= 0");
+        }
+
+        int width = numberOfIndependentVariables + 1;
+        this.windowSize = windowSize;
+        this.numberOfIndependentVariables = numberOfIndependentVariables;
+        this.refitInterval = refitInterval;
+        this.windowXs = new double[windowSize * numberOfIndependentVariables];
+        this.windowYs = new double[windowSize];
+        this.r = new double[width * width];
+        this.qty = new double[width];
+        this.row = new double[width];
+        this.cosines = new double[width];
+        this.sines = new double[width];
+        this.coefficients = new double[width];
+    }
+
+    /**
+     * Adds a point to the window, removing the oldest one if the window is full.
+     * @param y the dependent variable of the point
+     * @param independentVars the independent variables of the point
+     */
+    public void add(double y, double... independentVars) {
+        if (independentVars.length != numberOfIndependentVariables) {
+            throw new IllegalArgumentException("All points supplied must have the same number of independent variables");
+        }
+
+        boolean full = size == windowSize;
+        int slot = full ? oldest : (oldest + size) % windowSize;
+
+        //adds the newest point before removing the oldest, so the downdated window is never smaller than the current one
+        loadRow(independentVars, 0);
+        update(y);
+
+        if (full) {
+            loadRow(windowXs, slot * numberOfIndependentVariables);
+            double oldestY = windowYs[slot];
+            oldest = (oldest + 1) % windowSize;
+            downdates++;
+
+            System.arraycopy(independentVars, 0, windowXs, slot * numberOfIndependentVariables, numberOfIndependentVariables);
+            windowYs[slot] = y;
+
+            if ((refitInterval > 0 && downdates >= refitInterval) || !downdate(oldestY)) {
+                refit();
+            }
+        } else {
+            System.arraycopy(independentVars, 0, windowXs, slot * numberOfIndependentVariables, numberOfIndependentVariables);
+            windowYs[slot] = y;
+            size++;
+        }
+    }
+
+    /**
+     * Copies the independent variables of a point into the scratch row, after its leading 1.
+     * @param independentVars the array holding the independent variables
+     * @param offset the index of the first independent variable of the point
+     */
+    private void loadRow(double[] independentVars, int offset) {
+        row[0] = 1.0;
+        System.arraycopy(independentVars, offset, row, 1, numberOfIndependentVariables);
+    }
+
+    /**
+     * Updates the factorisation with the scratch row, as LINPACK's dchud: each rotation zeroes one entry of the row
+     * against the diagonal of R, which stays non-negative.
+     * @param y the dependent variable of the row
+     */
+    private void update(double y) {
+        int width = row.length;
+
+        for (int j = 0; j < width; j++) {
+            double xj = row[j];
+            for (int i = 0; i < j; i++) {
+                double rij = r[i * width + j];
+                r[i * width + j] = cosines[i] * rij + sines[i] * xj;
+                xj = cosines[i] * xj - sines[i] * rij;
+            }
+
+            double rjj = r[j * width + j];
+            double norm = Math.hypot(rjj, xj);
+            if (norm == 0.0) {
+                cosines[j] = 1.0;
+                sines[j] = 0.0;
+            } else {
+                cosines[j] = rjj / norm;
+                sines[j] = xj / norm;
+                r[j * width + j] = norm;
+            }
+        }
+
+        double zeta = y;
+        for (int i = 0; i < width; i++) {
+            double zi = qty[i];
+            qty[i] = cosines[i] * zi + sines[i] * zeta;
+            zeta = cosines[i] * zeta - sines[i] * zi;
+        }
+        residualNorm = Math.hypot(residualNorm, zeta);
+    }
+
+    /**
+     * Downdates the factorisation with the scratch row, as LINPACK's dchdd: solves R<sup>T</sup>a = x, and builds the
+     * rotations that turn the removal of x into the rotation of a unit vector, which only exists if ||a|| < 1.
+     * @param y the dependent variable of the row
+     * @return false if the downdate failed and the factorisation has to be rebuilt
+     */
+    private boolean downdate(double y) {
+        int width = row.length;
+
+        //solves R^T a = x, storing a in sines
+        double normSquared = 0.0;
+        for (int j = 0; j < width; j++) {
+            double value = row[j];
+            for (int i = 0; i < j; i++) {
+                value -= r[i * width + j] * sines[i];
+            }
+
+            double rjj = r[j * width + j];
+            if (rjj == 0.0) {
+                return false;
+            }
+            sines[j] = value / rjj;
+            normSquared += sines[j] * sines[j];
+        }
+
+        if (!(normSquared < 1.0)) {
+            return false;
+        }
+
+        double alpha = Math.sqrt(1.0 - normSquared);
+        for (int i = width - 1; i >= 0; i--) {
+            double scale = alpha + Math.abs(sines[i]);
+            double a = alpha / scale;
+            double b = sines[i] / scale;
+            double norm = Math.sqrt(a * a + b * b);
+            cosines[i] = a / norm;
+            sines[i] = b / norm;
+            alpha = scale * norm;
+        }
+
+        for (int j = 0; j < width; j++) {
+            double xx = 0.0;
+            for (int i = j; i >= 0; i--) {
+                double rij = r[i * width + j];
+                double t = cosines[i] * xx + sines[i] * rij;
+                r[i * width + j] = cosines[i] * rij - sines[i] * xx;
+                xx = t;
+            }
+        }
+
+        double zeta = y;
+        for (int i = 0; i < width; i++) {
+            qty[i] = (qty[i] - sines[i] * zeta) / cosines[i];
+            zeta = cosines[i] * zeta - sines[i] * qty[i];
+        }
+
+        //the residuals removed can only exceed the remaining ones through rounding, when the fit is nearly exact
+        double ratio = Math.abs(zeta) / residualNorm;
+        residualNorm = ratio < 1.0 ? residualNorm * Math.sqrt(1.0 - ratio * ratio) : 0.0;
+
+        return true;
+    }
+
+    /**
+     * Rebuilds the factorisation from the points in the window, in O(N p<sup>2</sup>).
+     */
+    public void refit() {
+        Arrays.fill(r, 0.0);
+        Arrays.fill(qty, 0.0);
+        residualNorm = 0.0;
+        downdates = 0;
+
+        for (int k = 0; k < size; k++) {
+            int slot = (oldest + k) % windowSize;
+            loadRow(windowXs, slot * numberOfIndependentVariables);
+            update(windowYs[slot]);
+        }
+    }
+
+    /**
+     * Solves R b = Q<sup>T</sup>y by back substitution.
+     * @param result the array the coefficients are written to, intercept first
+     */
+    private void solve(double[] result) {
+        int width = row.length;
+        if (size < width) {
+            throw new IllegalStateException("At least " + width + " points are needed to compute the coefficients");
+        }
+
+        for (int i = width - 1; i >= 0; i--) {
+            double value = qty[i];
+            for (int j = i + 1; j < width; j++) {
+                value -= r[i * width + j] * result[j];
+            }
+
+            double rii = r[i * width + i];
+            if (rii == 0.0) {
+                throw new IllegalStateException("The points in the window do not determine the coefficients");
+            }
+            result[i] = value / rii;
+        }
+    }
+
+    /**
+     * Computes the coefficients of the regression over the points in the window.
+     * @return the coefficients, intercept first, in the same layout as <em>MultipleLinearRegression.getCoefficients</em>
+     */
+    public double[][] getCoefficients() {
+        solve(coefficients);
+
+        double[][] result = new double[coefficients.length][1];
+        for (int i = 0; i < coefficients.length; i++) {
+            result[i][0] = coefficients[i];
+        }
+
+        return result;
+    }
+
+    /**
+     * Computes the coefficients of the regression over the points in the window into the supplied array, without
+     * allocating.
+     * @param result the array of at least p + 1 entries the coefficients are written to, intercept first
+     */
+    public void getCoefficients(double[] result) {
+        if (result.length <= numberOfIndependentVariables) {
+            throw new IllegalArgumentException("Array must hold " + (numberOfIndependentVariables + 1) + " coefficients");
+        }
+
+        solve(result);
+    }
+
+    /**
+     * Computes the prediction of the regression over the points in the window.
+     * @param independentVars the independent variables to predict for
+     * @return the prediction
+     */
+    public double getPrediction(double... independentVars) {
+        if (independentVars.length != numberOfIndependentVariables) {
+            throw new IllegalArgumentException("All points supplied must have the same number of independent variables");
+        }
+
+        solve(coefficients);
+
+        double prediction = coefficients[0];
+        for (int j = 0; j < numberOfIndependentVariables; j++) {
+            prediction += coefficients[j + 1] * independentVars[j];
+        }
+
+        return prediction;
+    }
+
+    /**
+     * Gets the sum of the squared residuals of the regression over the points in the window.
+     * @return the residual sum of squares
+     */
+    public double getResidualSumOfSquares() {
+        return residualNorm * residualNorm;
+    }
+
+    /**
+     * Builds a MultipleLinearRegression with the coefficients for the points in the window. The regression does not keep
+     * any training points.
+     * @return the fitted regression
+     */
+    public MultipleLinearRegression toMultipleLinearRegression() {
+        return new MultipleLinearRegression(getCoefficients());
+    }
+
+    /**
+     * Gets the fitted model for the points in the window as an immutable predictor, which is not affected by later points.
+     * @return the predictor with the coefficients for the points in the window
+     */
+    public LinearPredictor toPredictor() {
+        solve(coefficients);
+        return new LinearPredictor(coefficients);
+    }
+
+    /**
+     * Gets the number of points in the window.
+     * @return the number of points in the window
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the maximum number of points in the window.
+     * @return the window size
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Gets the number of independent variables of the points.
+     * @return the number of independent variables
+     */
+    public int getNumberOfIndependentVariables() {
+        return numberOfIndependentVariables;
+    }
+}
@@ -0,0 +1,269 @@
+package modelSelection;
+
+import Utils.ColumnarDataset;
+import Utils.DenseMatrix;
+import Utils.QRDecomposition;
+import polynomialRegression.PolynomialBasis;
+import polynomialRegression.PolynomialDegreeSweep;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Class representing a k-fold cross-validation engine, which estimates the test RMSE of candidate models as its mean
+ * across the folds of a <em>KFold</em> partition, together with its spread. Folds are row indices into the dataset, so
+ * the data is only read, never copied into per-fold datasets. Every pair of fold and candidate is a task on the supplied
+ * executor, which the engine never shuts down. For polynomial degrees, each fold is fitted once with a
+ * <em>PolynomialDegreeSweep</em> that reuses its factorization for every degree, and the evaluation of each degree on
+ * the fold's test rows is then a separate task.
+ * @author gorosgobe
+ */
+public class CrossValidation {
+
+    /** The partition of the rows into folds*/
+    private final KFold folds;
+    /** The executor running the fits and evaluations*/
+    private final ExecutorService executor;
+
+    /**
+     * Constructs an engine running its tasks on the common fork/join pool.
+     * @param folds the partition of the rows into folds
+     */
+    public CrossValidation(KFold folds) {
+        this(folds, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs an engine running its tasks on the supplied executor.
+     * @param folds the partition of the rows into folds
+     * @param executor the executor running the fits and evaluations
+     */
+    public CrossValidation(KFold folds, ExecutorService executor) {
+        this.folds = folds;
+        this.executor = executor;
+    }
+
+    /**
+     * Cross-validates every polynomial degree from 0 to the supplied maximum degree, in the monomial basis.
+     * @param data the dataset, with a single independent variable
+     * @param maxDegree the highest degree to evaluate
+     * @return the result, with one candidate per degree
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the tasks
+     */
+    public CrossValidationResult polynomialDegrees(ColumnarDataset data, int maxDegree) throws InterruptedException {
+        return polynomialDegrees(data, maxDegree, PolynomialBasis.MONOMIAL);
+    }
+
+    /**
+     * Cross-validates every polynomial degree from 0 to the supplied maximum degree, in the supplied basis.
+     * @param data the dataset, with a single independent variable
+     * @param maxDegree the highest degree to evaluate, lower than the number of training rows of every fold
+     * @param basis the basis to fit the polynomials in
+     * @return the result, with one candidate per degree
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the tasks
+     */
+    public CrossValidationResult polynomialDegrees(ColumnarDataset data, int maxDegree, PolynomialBasis basis)
+            throws InterruptedException {
+        checkSize(data);
+        int k = folds.getNumberOfFolds();
+
+        //one sweep per fold, keeping only the coefficients of every degree and the mapping of the basis
+        List<Callable<double[][]>> fits = new ArrayList<>(k);
+        for (int f = 0; f < k; f++) {
+            int fold = f;
+            fits.add(() -> {
+                PolynomialDegreeSweep sweep = new PolynomialDegreeSweep(data, folds.getTrainingRows(fold), maxDegree, basis);
+                double[][] result = new double[maxDegree + 2][];
+                while (sweep.hasNextDegree()) {
+                    int degree = sweep.nextDegree();
+                    result[degree] = sweep.getCoefficients();
+                }
+                result[maxDegree + 1] = sweep.getMapping();
+                return result;
+            });
+        }
+        List<double[][]> fitted = invokeAll(fits);
+        int[][] foldTestRows = getTestRows();
+
+        List<Callable<Double>> evaluations = new ArrayList<>(k * (maxDegree + 1));
+        for (int d = 0; d <= maxDegree; d++) {
+            for (int f = 0; f < k; f++) {
+                double[] coefficients = fitted.get(f)[d];
+                double[] mapping = fitted.get(f)[maxDegree + 1];
+                int[] testRows = foldTestRows[f];
+                evaluations.add(() -> {
+                    double sumOfSquares = 0.0;
+                    for (int row : testRows) {
+                        double t = mapping[0] * data.getX(row) + mapping[1];
+                        double residual = data.getY(row) - basis.evaluate(coefficients, t);
+                        sumOfSquares += residual * residual;
+                    }
+                    return Math.sqrt(sumOfSquares / testRows.length);
+                });
+            }
+        }
+
+        return new CrossValidationResult(toErrors(invokeAll(evaluations), maxDegree + 1, k));
+    }
+
+    /**
+     * Cross-validates the multiple linear regression on every independent variable of the dataset.
+     * @param data the dataset
+     * @return the result, with a single candidate
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the tasks
+     */
+    public CrossValidationResult multipleLinearRegression(ColumnarDataset data) throws InterruptedException {
+        int[] variables = new int[data.getNumberOfIndependentVariables()];
+        for (int j = 0; j < variables.length; j++) {
+            variables[j] = j;
+        }
+
+        return multipleLinearRegressions(data, new int[][] {variables});
+    }
+
+    /**
+     * Cross-validates multiple linear regressions on subsets of the independent variables of the dataset, with an
+     * intercept each.
+     * @param data the dataset
+     * @param candidates the indices of the independent variables of each candidate regression
+     * @return the result, with the candidates in the order supplied
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the tasks
+     */
+    public CrossValidationResult multipleLinearRegressions(ColumnarDataset data, int[][] candidates)
+            throws InterruptedException {
+        checkSize(data);
+        int k = folds.getNumberOfFolds();
+
+        int[][] foldTrainingRows = new int[k][];
+        for (int f = 0; f < k; f++) {
+            foldTrainingRows[f] = folds.getTrainingRows(f);
+        }
+        int[][] foldTestRows = getTestRows();
+
+        List<Callable<Double>> tasks = new ArrayList<>(k * candidates.length);
+        for (int[] variables : candidates) {
+            for (int f = 0; f < k; f++) {
+                int[] trainingRows = foldTrainingRows[f];
+                int[] testRows = foldTestRows[f];
+                tasks.add(() -> linearRegressionError(data, variables, trainingRows, testRows));
+            }
+        }
+
+        return new CrossValidationResult(toErrors(invokeAll(tasks), candidates.length, k));
+    }
+
+    /**
+     * Fits a multiple linear regression on the supplied variables and training rows, through QR decomposition, and
+     * computes its RMSE on the test rows.
+     * @param data the dataset
+     * @param variables the indices of the independent variables of the regression
+     * @param trainingRows the rows to fit the regression on
+     * @param testRows the rows to compute the RMSE on
+     * @return the RMSE on the test rows
+     */
+    private static double linearRegressionError(ColumnarDataset data, int[] variables, int[] trainingRows,
+                                                int[] testRows) {
+        int width = variables.length + 1;
+        if (trainingRows.length < width) {
+            throw new IllegalArgumentException("Every fold must have at least " + width + " training rows");
+        }
+
+        DenseMatrix designMatrix = DenseMatrix.columnMajor(trainingRows.length, width);
+        double[] design = designMatrix.getData();
+        double[] response = new double[trainingRows.length];
+        for (int i = 0; i < trainingRows.length; i++) {
+            design[i] = 1.0;
+            for (int j = 0; j < variables.length; j++) {
+                design[(j + 1) * trainingRows.length + i] = data.getX(trainingRows[i], variables[j]);
+            }
+            response[i] = data.getY(trainingRows[i]);
+        }
+
+        double[] coefficients = new QRDecomposition(designMatrix, true).solve(response);
+
+        double sumOfSquares = 0.0;
+        for (int row : testRows) {
+            double prediction = coefficients[0];
+            for (int j = 0; j < variables.length; j++) {
+                prediction += coefficients[j + 1] * data.getX(row, variables[j]);
+            }
+            double residual = data.getY(row) - prediction;
+            sumOfSquares += residual * residual;
+        }
+
+        return Math.sqrt(sumOfSquares / testRows.length);
+    }
+
+    /**
+     * Builds the test rows of every fold once, to be shared by the tasks evaluating every candidate on the fold instead
+     * of being copied and sorted again by each of them.
+     * @return the sorted test rows of every fold
+     */
+    private int[][] getTestRows() {
+        int[][] testRows = new int[folds.getNumberOfFolds()][];
+        for (int f = 0; f < testRows.length; f++) {
+            testRows[f] = folds.getTestRows(f);
+        }
+
+        return testRows;
+    }
+
+    /**
+     * Checks the dataset has the number of rows of the partition.
+     * @param data the dataset to check
+     */
+    private void checkSize(ColumnarDataset data) {
+        if (data.size() != folds.size()) {
+            throw new IllegalArgumentException("Dataset has " + data.size() + " rows but the folds partition "
+                    + folds.size());
+        }
+    }
+
+    /**
+     * Arranges the errors of the tasks, ordered by candidate and then by fold, by candidate and fold.
+     * @param results the errors of the tasks
+     * @param candidates the number of candidates
+     * @param k the number of folds
+     * @return the errors indexed by candidate and then by fold
+     */
+    private static double[][] toErrors(List<Double> results, int candidates, int k) {
+        double[][] errors = new double[candidates][k];
+        for (int c = 0; c < candidates; c++) {
+            for (int f = 0; f < k; f++) {
+                errors[c][f] = results.get(c * k + f);
+            }
+        }
+
+        return errors;
+    }
+
+    /**
+     * Runs the supplied tasks on the executor and waits for all of them.
+     * @param tasks the tasks to run
+     * @param <T> the type of the results of the tasks
+     * @return the results of the tasks, in the order of the tasks
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the tasks
+     */
+    private <T> List<T> invokeAll(List<Callable<T>> tasks) throws InterruptedException {
+        List<T> results = new ArrayList<>(tasks.size());
+
+        try {
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw new IllegalStateException("Cross-validation task failed", e.getCause());
+        }
+
+        return results;
+    }
+}
@@ -0,0 +1,122 @@
+package modelSelection;
+
+import Utils.StatisticUtils;
+
+import java.util.Arrays;
+
+/**
+ * Class representing the outcome of a cross-validation: the test RMSE of every candidate model on every fold, from which
+ * the mean and the standard deviation of each candidate's error across folds are computed. Candidates are indexed in the
+ * order they were supplied, which for polynomial degrees is the degree itself.
+ * @author gorosgobe
+ */
+public class CrossValidationResult {
+
+    /** The test RMSE indexed by candidate and then by fold*/
+    private final double[][] errors;
+    /** The mean test RMSE of each candidate across folds*/
+    private final double[] means;
+    /** The sample standard deviation of the test RMSE of each candidate across folds*/
+    private final double[] standardDeviations;
+    /** The candidate with the lowest mean test RMSE, -1 if every mean is NaN*/
+    private final int bestCandidate;
+
+    /**
+     * Constructs the result of a cross-validation with the supplied errors. The lowest candidate wins ties, and candidates
+     * with a NaN mean, such as degenerate fits, never win.
+     * @param errors the test RMSE indexed by candidate and then by fold
+     */
+    public CrossValidationResult(double[][] errors) {
+        this.errors = new double[errors.length][];
+        this.means = new double[errors.length];
+        this.standardDeviations = new double[errors.length];
+
+        int bestCandidate = -1;
+        double minimumError = Double.POSITIVE_INFINITY;
+        for (int c = 0; c < errors.length; c++) {
+            this.errors[c] = Arrays.copyOf(errors[c], errors[c].length);
+            means[c] = StatisticUtils.mean(errors[c]);
+            standardDeviations[c] = Math.sqrt(StatisticUtils.variance(errors[c]) / (errors[c].length - 1));
+
+            if (means[c] < minimumError || (bestCandidate == -1 && means[c] == minimumError)) {
+                minimumError = means[c];
+                bestCandidate = c;
+            }
+        }
+
+        this.bestCandidate = bestCandidate;
+    }
+
+    /**
+     * Gets the candidate with the lowest mean test RMSE across folds.
+     * @return the best candidate, -1 if no candidate has a mean error
+     */
+    public int getBestCandidate() {
+        return bestCandidate;
+    }
+
+    /**
+     * Gets the lowest candidate whose mean test RMSE is within one standard error of the best candidate's. As candidates
+     * are ordered by complexity, such as polynomial degrees, this is the simplest model that cannot be told apart from the
+     * best one given the spread of the folds, which is a more robust choice than the best one.
+     * @return the candidate chosen by the one standard error rule, -1 if no candidate has a mean error
+     */
+    public int getOneStandardErrorCandidate() {
+        if (bestCandidate == -1) {
+            return -1;
+        }
+
+        int folds = errors[bestCandidate].length;
+        double threshold = means[bestCandidate] + standardDeviations[bestCandidate] / Math.sqrt(folds);
+        for (int c = 0; c < bestCandidate; c++) {
+            if (means[c] <= threshold) {
+                return c;
+            }
+        }
+
+        return bestCandidate;
+    }
+
+    /**
+     * Gets the mean test RMSE of a candidate across folds.
+     * @param candidate the candidate
+     * @return the mean test RMSE
+     */
+    public double getMeanError(int candidate) {
+        return means[candidate];
+    }
+
+    /**
+     * Gets the sample standard deviation of the test RMSE of a candidate across folds.
+     * @param candidate the candidate
+     * @return the standard deviation of the test RMSE
+     */
+    public double getStandardDeviation(int candidate) {
+        return standardDeviations[candidate];
+    }
+
+    /**
+     * Gets the test RMSE of a candidate on every fold.
+     * @param candidate the candidate
+     * @return a copy of the test RMSE indexed by fold
+     */
+    public double[] getFoldErrors(int candidate) {
+        return Arrays.copyOf(errors[candidate], errors[candidate].length);
+    }
+
+    /**
+     * Gets the mean test RMSE of every candidate.
+     * @return a copy of the mean test RMSE indexed by candidate
+     */
+    public double[] getMeanErrors() {
+        return Arrays.copyOf(means, means.length);
+    }
+
+    /**
+     * Gets the number of candidates evaluated.
+     * @return the number of candidates
+     */
+    public int getNumberOfCandidates() {
+        return errors.length;
+    }
+}
@@ -0,0 +1,127 @@
+package modelSelection;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Class representing the partition of the rows of a dataset into k folds for cross-validation. Folds are arrays of row
+ * indices into the dataset, so the data itself is never copied or reordered. Rows are assigned to folds either in order,
+ * as contiguous blocks, or after a shuffle, which is needed when the data is sorted, for example by x.
+ * @author gorosgobe
+ */
+public class KFold {
+
+    /** The number of rows of the dataset*/
+    private final int size;
+    /** The number of folds*/
+    private final int folds;
+    /** The row indices, fold after fold*/
+    private final int[] order;
+
+    /**
+     * Constructs a partition into contiguous folds, in the order of the rows.
+     * @param size the number of rows of the dataset
+     * @param folds the number of folds
+     */
+    public KFold(int size, int folds) {
+        this(size, folds, null);
+    }
+
+    /**
+     * Constructs a partition into folds of rows shuffled by the supplied random number generator, so a seeded generator
+     * gives a reproducible partition.
+     * @param size the number of rows of the dataset
+     * @param folds the number of folds
+     * @param random the random number generator shuffling the rows, or null to keep them in order
+     */
+    public KFold(int size, int folds, Random random) {
+        if (folds < 2) {
+            throw new IllegalArgumentException("Number of folds should be >= 2");
+        }
+
+        if (size < folds) {
+            throw new IllegalArgumentException("There must be at least one row per fold");
+        }
+
+        this.size = size;
+        this.folds = folds;
+        this.order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+
+        if (random != null) {
+            for (int i = size - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = order[i];
+                order[i] = order[j];
+                order[j] = swap;
+            }
+        }
+    }
+
+    /**
+     * Gets the index in the shuffled order of the first row of a fold. Fold sizes differ by at most one row.
+     * @param fold the fold, or the number of folds for the end of the last one
+     * @return the index of the first row of the fold
+     */
+    private int start(int fold) {
+        return (int) ((long) size * fold / folds);
+    }
+
+    /**
+     * Gets the rows held out for testing in a fold.
+     * @param fold the fold
+     * @return the indices of the test rows, in increasing order
+     */
+    public int[] getTestRows(int fold) {
+        checkFold(fold);
+
+        int[] rows = Arrays.copyOfRange(order, start(fold), start(fold + 1));
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    /**
+     * Gets the rows used for training in a fold, which are the rows of every other fold.
+     * @param fold the fold
+     * @return the indices of the training rows, in increasing order
+     */
+    public int[] getTrainingRows(int fold) {
+        checkFold(fold);
+
+        int from = start(fold);
+        int to = start(fold + 1);
+        int[] rows = new int[size - (to - from)];
+        System.arraycopy(order, 0, rows, 0, from);
+        System.arraycopy(order, to, rows, from, size - to);
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    /**
+     * Checks the supplied fold exists.
+     * @param fold the fold to check
+     */
+    private void checkFold(int fold) {
+        if (fold < 0 || fold >= folds) {
+            throw new IllegalArgumentException("Fold " + fold + " does not exist");
+        }
+    }
+
+    /**
+     * Gets the number of folds.
+     * @return the number of folds
+     */
+    public int getNumberOfFolds() {
+        return folds;
+    }
+
+    /**
+     * Gets the number of rows of the dataset.
+     * @return the number of rows
+     */
+    public int size() {
+        return size;
+    }
+}
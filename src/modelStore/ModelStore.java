@@ -0,0 +1,156 @@
+package modelStore;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Class representing a file of many fitted models, memory-mapped so that models are served by id without parsing or
+ * copying their coefficients: every model handed out predicts from a view of the mapped file. The format, version 1, is
+ * little-endian throughout:
+ * <ul>
+ *     <li>the 4 ASCII bytes "RMOD", the version as an int, the number of models as an int and 4 reserved bytes;</li>
+ *     <li>for every model, the length of its id as a short, its id in UTF-8 and the offset of its record as a long;</li>
+ *     <li>zero padding up to a multiple of 8 bytes, after which the records of the models follow one another, in the
+ *     layout of <em>StoredModel</em>.</li>
+ * </ul>
+ * The file is mapped at once, so it can be at most 2GB. Only the index and the headers of the records are read when the
+ * store is opened, checking every record lies within the file; the operating system reads the pages of the coefficients
+ * as models are used. A store can be shared between threads.
+ * @author gorosgobe
+ */
+public class ModelStore {
+
+    /** The bytes every file starts with*/
+    static final byte[] MAGIC = "RMOD".getBytes(StandardCharsets.US_ASCII);
+    /** The version of the format written*/
+    static final int VERSION = 1;
+    /** The size in bytes of the header of the file, before the index*/
+    static final int HEADER_SIZE = 16;
+
+    /** The mapped file, never repositioned once the store is open*/
+    private final ByteBuffer buffer;
+    /** The offsets of the records by model id*/
+    private final Map<String, Integer> offsets;
+
+    /**
+     * Constructs a store over the supplied mapped file.
+     * @param buffer the mapped file
+     * @param offsets the offsets of the records by model id
+     */
+    private ModelStore(ByteBuffer buffer, Map<String, Integer> offsets) {
+        this.buffer = buffer;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Opens a file written by a <em>ModelStoreWriter</em> and maps it. The mapping stays valid after this method
+     * returns.
+     * @param path the file to open
+     * @return the store over the mapped file
+     * @throws IOException if the file cannot be read or is not a valid model file
+     */
+    public static ModelStore open(Path path) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Model file too large to be mapped at once: " + path);
+            }
+
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a model file: " + path);
+            }
+
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported model file version " + version);
+            }
+
+            int count = buffer.getInt();
+            buffer.getInt();
+
+            Map<String, Integer> offsets = new HashMap<>(Math.max(16, 2 * count));
+            for (int i = 0; i < count; i++) {
+                byte[] id = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(id);
+                long offset = buffer.getLong();
+
+                if (offset < buffer.position() || (offset & 7) != 0
+                        || offset + StoredModel.HEADER_SIZE > buffer.limit()) {
+                    throw new IOException("Invalid record offset in model file: " + path);
+                }
+
+                int coefficients = buffer.getInt((int) offset + 4);
+                if (coefficients < 1 || offset + StoredModel.HEADER_SIZE + 8L * coefficients > buffer.limit()) {
+                    throw new IOException("Truncated or invalid model record in model file: " + path);
+                }
+
+                if (offsets.put(new String(id, StandardCharsets.UTF_8), (int) offset) != null) {
+                    throw new IOException("Duplicate model id in model file: " + path);
+                }
+            }
+
+            return new ModelStore(buffer, offsets);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated model file: " + path, e);
+        }
+    }
+
+    /**
+     * Gets the model with the supplied id. Its coefficients are not copied out of the mapped file, so getting a model
+     * only allocates the small object describing it; callers predicting repeatedly should keep it.
+     * @param id the id of the model
+     * @return the model with the id
+     */
+    public StoredModel get(String id) {
+        Integer offset = offsets.get(id);
+        if (offset == null) {
+            throw new IllegalArgumentException("No model with id " + id);
+        }
+
+        return StoredModel.read(buffer, offset);
+    }
+
+    /**
+     * Checks whether the store holds a model with the supplied id.
+     * @param id the id of the model
+     * @return true if the store holds the model, false otherwise
+     */
+    public boolean contains(String id) {
+        return offsets.containsKey(id);
+    }
+
+    /**
+     * Gets the ids of the models in the store.
+     * @return an unmodifiable set with the ids
+     */
+    public Set<String> getIds() {
+        return Collections.unmodifiableSet(offsets.keySet());
+    }
+
+    /**
+     * Gets the number of models in the store.
+     * @return the number of models
+     */
+    public int size() {
+        return offsets.size();
+    }
+}
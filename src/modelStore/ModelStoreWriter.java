@@ -0,0 +1,127 @@
+package modelStore;
+
+import linearRegression.MultipleLinearRegression;
+import linearRegression.SimpleLinearRegression;
+import polynomialRegression.PolynomialRegression;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class collecting fitted models by id and writing them to a single file that a <em>ModelStore</em> can map. See
+ * <em>ModelStore</em> for the layout of the file.
+ * @author gorosgobe
+ */
+public class ModelStoreWriter {
+
+    /** The models to write by id, in insertion order*/
+    private final Map<String, StoredModel> models = new LinkedHashMap<>();
+
+    /**
+     * Adds a model with the supplied id.
+     * @param id the id of the model, unique in the file
+     * @param model the model to add
+     * @return this writer
+     */
+    public ModelStoreWriter add(String id, StoredModel model) {
+        if (id.getBytes(StandardCharsets.UTF_8).length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Model id too long: " + id);
+        }
+
+        if (models.containsKey(id)) {
+            throw new IllegalArgumentException("Duplicate model id " + id);
+        }
+
+        models.put(id, model);
+        return this;
+    }
+
+    /**
+     * Adds a simple linear regression with the supplied id.
+     * @param id the id of the model, unique in the file
+     * @param regression the fitted regression
+     * @return this writer
+     */
+    public ModelStoreWriter add(String id, SimpleLinearRegression regression) {
+        return add(id, StoredModel.of(regression));
+    }
+
+    /**
+     * Adds a multiple linear regression with the supplied id.
+     * @param id the id of the model, unique in the file
+     * @param regression the fitted regression
+     * @return this writer
+     */
+    public ModelStoreWriter add(String id, MultipleLinearRegression regression) {
+        return add(id, StoredModel.of(regression));
+    }
+
+    /**
+     * Adds a polynomial regression with the supplied id.
+     * @param id the id of the model, unique in the file
+     * @param regression the fitted regression
+     * @return this writer
+     */
+    public ModelStoreWriter add(String id, PolynomialRegression regression) {
+        return add(id, StoredModel.of(regression));
+    }
+
+    /**
+     * Gets the number of models added.
+     * @return the number of models
+     */
+    public int size() {
+        return models.size();
+    }
+
+    /**
+     * Writes every model added to a file, replacing it if it exists.
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        long indexEnd = ModelStore.HEADER_SIZE;
+        long size = 0;
+
+        for (Map.Entry<String, StoredModel> entry : models.entrySet()) {
+            indexEnd += 2 + entry.getKey().getBytes(StandardCharsets.UTF_8).length + 8;
+            size += entry.getValue().getEncodedSize();
+        }
+
+        long recordsStart = (indexEnd + 7) & ~7L;
+        size += recordsStart;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many models for a single file, split them across files");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(ModelStore.MAGIC).putInt(ModelStore.VERSION).putInt(models.size()).putInt(0);
+
+        long offset = recordsStart;
+        for (Map.Entry<String, StoredModel> entry : models.entrySet()) {
+            byte[] id = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            buffer.putShort((short) id.length).put(id).putLong(offset);
+            offset += entry.getValue().getEncodedSize();
+        }
+
+        buffer.position((int) recordsStart);
+        for (StoredModel model : models.values()) {
+            model.write(buffer);
+        }
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
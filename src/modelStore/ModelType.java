@@ -0,0 +1,49 @@
+package modelStore;
+
+/**
+ * Enum of the kinds of model that can be stored, each one with the tag identifying it in the binary format.
+ * @author gorosgobe
+ */
+public enum ModelType {
+
+    /** y = b + ax, stored as the intercept and the slope*/
+    SIMPLE_LINEAR(1),
+    /** y = b0 + b1x1 + ... + bpxp, stored as the intercept and one coefficient per independent variable*/
+    MULTIPLE_LINEAR(2),
+    /** A polynomial in x, stored as its coefficients in a basis, lowest degree first, with the mapping of x into it*/
+    POLYNOMIAL(3);
+
+    /** The tag of the type in the binary format*/
+    private final byte tag;
+
+    /**
+     * Constructs a type with the supplied tag.
+     * @param tag the tag of the type in the binary format
+     */
+    ModelType(int tag) {
+        this.tag = (byte) tag;
+    }
+
+    /**
+     * Gets the tag of the type in the binary format.
+     * @return the tag of the type
+     */
+    public byte getTag() {
+        return tag;
+    }
+
+    /**
+     * Gets the type with the supplied tag.
+     * @param tag the tag of the type in the binary format
+     * @return the type with the tag
+     */
+    public static ModelType fromTag(byte tag) {
+        for (ModelType type : values()) {
+            if (type.tag == tag) {
+                return type;
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown model type tag: " + tag);
+    }
+}
@@ -0,0 +1,335 @@
+package modelStore;
+
+import Utils.ColumnarDataset;
+import Utils.Predictor;
+import linearRegression.MultipleLinearRegression;
+import linearRegression.SimpleLinearRegression;
+import polynomialRegression.PolynomialBasis;
+import polynomialRegression.PolynomialRegression;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+/**
+ * Class representing a fitted model in its compact binary form: the type of the model, its coefficients, the mapping of x
+ * into the basis of a polynomial and the statistics of the fit, without any training data. A record is little-endian,
+ * starts at a multiple of 8 bytes, and is laid out as:
+ * <ul>
+ *     <li>the type tag as a byte, the basis of a polynomial as a byte (0 otherwise), and 2 reserved bytes;</li>
+ *     <li>the number of coefficients as an int;</li>
+ *     <li>the number of training points as a long, 0 if unknown;</li>
+ *     <li>the RMSE of the training data, the scale and the shift of the mapping t = scale * x + shift, as doubles, the
+ *     RMSE being NaN if unknown;</li>
+ *     <li>the coefficients as doubles: intercept first for linear models, lowest degree first for polynomials.</li>
+ * </ul>
+ * Models read from a buffer keep a view of its coefficients instead of copying them, so models read from a
+ * memory-mapped <em>ModelStore</em> predict straight from the file.
+ * @author gorosgobe
+ */
+public final class StoredModel implements Predictor {
+
+    /** The size in bytes of the header of a record, before its coefficients*/
+    static final int HEADER_SIZE = 40;
+    /** The bases of the polynomials by their code in the binary format*/
+    private static final PolynomialBasis[] BASES = {PolynomialBasis.MONOMIAL, PolynomialBasis.CHEBYSHEV,
+            PolynomialBasis.LEGENDRE};
+
+    /** The type of the model*/
+    private final ModelType type;
+    /** The basis of the coefficients of a polynomial, null for linear models*/
+    private final PolynomialBasis basis;
+    /** The scale of the mapping of x into the basis*/
+    private final double scale;
+    /** The shift of the mapping of x into the basis*/
+    private final double shift;
+    /** The number of training points, 0 if unknown*/
+    private final long trainingSize;
+    /** The RMSE of the training data, NaN if unknown*/
+    private final double trainingRootMeanSquareError;
+    /** The coefficients, from index 0 to the limit, possibly a view of a mapped file*/
+    private final DoubleBuffer coefficients;
+
+    /**
+     * Constructs a stored model.
+     * @param type the type of the model
+     * @param basis the basis of the coefficients of a polynomial, null for linear models
+     * @param scale the scale of the mapping of x into the basis
+     * @param shift the shift of the mapping of x into the basis
+     * @param trainingSize the number of training points, 0 if unknown
+     * @param trainingRootMeanSquareError the RMSE of the training data, NaN if unknown
+     * @param coefficients the coefficients, from index 0 to the limit
+     */
+    private StoredModel(ModelType type, PolynomialBasis basis, double scale, double shift, long trainingSize,
+                        double trainingRootMeanSquareError, DoubleBuffer coefficients) {
+        this.type = type;
+        this.basis = basis;
+        this.scale = scale;
+        this.shift = shift;
+        this.trainingSize = trainingSize;
+        this.trainingRootMeanSquareError = trainingRootMeanSquareError;
+        this.coefficients = coefficients;
+    }
+
+    /**
+     * Builds the stored form of a simple linear regression.
+     * @param regression the fitted regression
+     * @return the stored model
+     */
+    public static StoredModel of(SimpleLinearRegression regression) {
+        double[] coefficients = {regression.getInterceptCoefficient(), regression.getSlopeCoefficient()};
+        return new StoredModel(ModelType.SIMPLE_LINEAR, null, 1.0, 0.0, regression.getDataset().size(),
+                regression.getRootMeanSquareError(), DoubleBuffer.wrap(coefficients));
+    }
+
+    /**
+     * Builds the stored form of a multiple linear regression. Regressions that did not keep their training data are
+     * stored without fit statistics.
+     * @param regression the fitted regression
+     * @return the stored model
+     */
+    public static StoredModel of(MultipleLinearRegression regression) {
+        double[][] matrix = regression.getCoefficients();
+        double[] coefficients = new double[matrix.length];
+        for (int i = 0; i < coefficients.length; i++) {
+            coefficients[i] = matrix[i][0];
+        }
+
+        ColumnarDataset dataset = regression.getDataset();
+        long trainingSize = 0;
+        double rmse = Double.NaN;
+
+        if (dataset != null) {
+            double sumOfSquares = 0.0;
+            for (int i = 0; i < dataset.size(); i++) {
+                double prediction = coefficients[0];
+                for (int j = 1; j < coefficients.length; j++) {
+                    prediction += coefficients[j] * dataset.getX(i, j - 1);
+                }
+
+                double error = prediction - dataset.getY(i);
+                sumOfSquares += error * error;
+            }
+
+            trainingSize = dataset.size();
+            rmse = Math.sqrt(sumOfSquares / dataset.size());
+        }
+
+        return new StoredModel(ModelType.MULTIPLE_LINEAR, null, 1.0, 0.0, trainingSize, rmse,
+                DoubleBuffer.wrap(coefficients));
+    }
+
+    /**
+     * Builds the stored form of a polynomial regression, keeping its coefficients in the basis they were fitted in.
+     * @param regression the fitted regression
+     * @return the stored model
+     */
+    public static StoredModel of(PolynomialRegression regression) {
+        double[][] matrix = regression.getCoefficients();
+        double[] coefficients = new double[matrix.length];
+        for (int i = 0; i < coefficients.length; i++) {
+            coefficients[i] = matrix[i][0];
+        }
+
+        double[] mapping = regression.getMapping();
+        return new StoredModel(ModelType.POLYNOMIAL, regression.getBasis(), mapping[0], mapping[1],
+                regression.getDataset().size(), regression.getTrainingDataRootMeanSquareError(),
+                DoubleBuffer.wrap(coefficients));
+    }
+
+    /**
+     * Reads the record at the supplied offset of a buffer. The coefficients are not copied: the model keeps a view of
+     * the buffer, which must therefore not be modified while the model is in use.
+     * @param buffer the buffer holding the record
+     * @param offset the offset of the record in bytes, a multiple of 8
+     * @return the model read
+     */
+    public static StoredModel read(ByteBuffer buffer, int offset) {
+        if ((offset & 7) != 0) {
+            throw new IllegalArgumentException("Records must start at a multiple of 8 bytes");
+        }
+
+        ByteBuffer record = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        ModelType type = ModelType.fromTag(record.get(offset));
+        int basisCode = record.get(offset + 1);
+        int count = record.getInt(offset + 4);
+
+        if (count < 1 || basisCode < 0 || basisCode >= BASES.length
+                || offset + HEADER_SIZE + 8L * count > buffer.limit()) {
+            throw new IllegalArgumentException("Invalid model record at offset " + offset);
+        }
+
+        PolynomialBasis basis = type == ModelType.POLYNOMIAL ? BASES[basisCode] : null;
+        long trainingSize = record.getLong(offset + 8);
+        double rmse = record.getDouble(offset + 16);
+        double scale = record.getDouble(offset + 24);
+        double shift = record.getDouble(offset + 32);
+
+        record.position(offset + HEADER_SIZE);
+        record.limit(offset + HEADER_SIZE + count * 8);
+        DoubleBuffer coefficients = record.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+
+        return new StoredModel(type, basis, scale, shift, trainingSize, rmse, coefficients);
+    }
+
+    /**
+     * Writes the record of the model at the position of the buffer, which is advanced past it.
+     * @param buffer the buffer to write to, with at least <em>getEncodedSize</em> bytes remaining
+     */
+    public void write(ByteBuffer buffer) {
+        ByteBuffer record = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        record.put(type.getTag());
+        record.put(basis == null ? 0 : (byte) basisCode(basis));
+        record.putShort((short) 0);
+        record.putInt(coefficients.limit());
+        record.putLong(trainingSize);
+        record.putDouble(trainingRootMeanSquareError);
+        record.putDouble(scale);
+        record.putDouble(shift);
+
+        for (int i = 0; i < coefficients.limit(); i++) {
+            record.putDouble(coefficients.get(i));
+        }
+
+        buffer.position(record.position());
+    }
+
+    /**
+     * Gets the code of a basis in the binary format.
+     * @param basis the basis
+     * @return the code of the basis
+     */
+    private static int basisCode(PolynomialBasis basis) {
+        for (int i = 0; i < BASES.length; i++) {
+            if (BASES[i] == basis) {
+                return i;
+            }
+        }
+
+        throw new IllegalArgumentException("Basis cannot be stored: " + basis);
+    }
+
+    /**
+     * Gets the size in bytes of the record of the model, a multiple of 8.
+     * @return the size of the record
+     */
+    public int getEncodedSize() {
+        return HEADER_SIZE + 8 * coefficients.limit();
+    }
+
+    /**
+     * Gets a prediction given the independent variables: a single x for simple linear and polynomial models.
+     * @param independentVars the independent variables
+     * @return the prediction of the model
+     */
+    @Override
+    public double getPrediction(double... independentVars) {
+        if (independentVars.length != getNumberOfIndependentVariables()) {
+            throw new IllegalArgumentException("Model predicts from " + getNumberOfIndependentVariables()
+                    + " independent variables");
+        }
+
+        if (type != ModelType.MULTIPLE_LINEAR) {
+            return getPrediction(independentVars[0]);
+        }
+
+        double result = coefficients.get(0);
+        for (int j = 0; j < independentVars.length; j++) {
+            result += coefficients.get(j + 1) * independentVars[j];
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets a prediction for a single independent variable, without allocating an array.
+     * @param value the value (x) we want to get a prediction for
+     * @return the prediction of the model
+     */
+    public double getPrediction(double value) {
+        if (type == ModelType.POLYNOMIAL) {
+            if (basis != PolynomialBasis.MONOMIAL) {
+                return basis.evaluate(coefficients, scale * value + shift);
+            }
+
+            //Horner's scheme, as in PolynomialRegression
+            int n = coefficients.limit();
+            double result = coefficients.get(n - 1);
+            for (int i = n - 2; i >= 0; i--) {
+                result = result * value + coefficients.get(i);
+            }
+
+            return result;
+        }
+
+        if (coefficients.limit() != 2) {
+            throw new IllegalArgumentException("Model predicts from " + getNumberOfIndependentVariables()
+                    + " independent variables");
+        }
+
+        //same order of operations as SimpleLinearRegression
+        return value * coefficients.get(1) + coefficients.get(0);
+    }
+
+    /**
+     * Gets the number of independent variables the model predicts from.
+     * @return the number of independent variables
+     */
+    @Override
+    public int getNumberOfIndependentVariables() {
+        return type == ModelType.MULTIPLE_LINEAR ? coefficients.limit() - 1 : 1;
+    }
+
+    /**
+     * Gets the type of the model.
+     * @return the type of the model
+     */
+    public ModelType getType() {
+        return type;
+    }
+
+    /**
+     * Gets the basis of the coefficients of a polynomial.
+     * @return the basis of the coefficients, or null for linear models
+     */
+    public PolynomialBasis getBasis() {
+        return basis;
+    }
+
+    /**
+     * Gets the coefficients of the model, copied out of the record.
+     * @return the coefficients, intercept first for linear models and lowest degree first for polynomials
+     */
+    public double[] getCoefficients() {
+        double[] result = new double[coefficients.limit()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = coefficients.get(i);
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets the mapping t = scale * x + shift of x into the basis of a polynomial.
+     * @return the scale and the shift of the mapping, the identity for linear models
+     */
+    public double[] getMapping() {
+        return new double[] {scale, shift};
+    }
+
+    /**
+     * Gets the number of points the model was trained on.
+     * @return the number of training points, 0 if unknown
+     */
+    public long getTrainingSize() {
+        return trainingSize;
+    }
+
+    /**
+     * Gets the RMSE of the training data.
+     * @return the RMSE of the training data, NaN if unknown
+     */
+    public double getTrainingRootMeanSquareError() {
+        return trainingRootMeanSquareError;
+    }
+}
@@ -0,0 +1,83 @@
+package polynomialRegression;
+
+import java.util.Arrays;
+
+/**
+ * Class representing the outcome of a polynomial degree search: the test RMSE of every degree evaluated, the degree with
+ * the lowest one and whether the search finished or was stopped by its deadline or a cancellation, in which case the
+ * optimal degree is the best one found so far.
+ * @author gorosgobe
+ */
+public class DegreeSearchResult {
+
+    /** The test RMSE indexed by degree, NaN for the degrees that were not evaluated*/
+    private final double[] errors;
+    /** The degree with the lowest test RMSE, -1 if no degree was evaluated*/
+    private final int optimalDegree;
+    /** Did the search evaluate every degree its strategy asked for?*/
+    private final boolean complete;
+
+    /**
+     * Constructs the result of a search with the supplied errors. The lowest degree wins ties, and NaN errors, which
+     * mark degrees not evaluated or degenerate fits, never win.
+     * @param errors the test RMSE indexed by degree, NaN for the degrees that were not evaluated
+     * @param complete did the search evaluate every degree its strategy asked for?
+     */
+    public DegreeSearchResult(double[] errors, boolean complete) {
+        this.errors = Arrays.copyOf(errors, errors.length);
+        this.complete = complete;
+
+        int optimalDegree = -1;
+        double minimumError = Double.POSITIVE_INFINITY;
+        for (int degree = 0; degree < errors.length; degree++) {
+            if (errors[degree] < minimumError || (optimalDegree == -1 && errors[degree] == minimumError)) {
+                minimumError = errors[degree];
+                optimalDegree = degree;
+            }
+        }
+
+        this.optimalDegree = optimalDegree;
+    }
+
+    /**
+     * Gets the degree with the lowest test RMSE among the degrees evaluated.
+     * @return the optimal degree, -1 if no degree was evaluated
+     */
+    public int getOptimalDegree() {
+        return optimalDegree;
+    }
+
+    /**
+     * Gets the test RMSE of the optimal degree.
+     * @return the lowest test RMSE, NaN if no degree was evaluated
+     */
+    public double getMinimumError() {
+        return optimalDegree == -1 ? Double.NaN : errors[optimalDegree];
+    }
+
+    /**
+     * Gets the test RMSE of a degree.
+     * @param degree the degree
+     * @return the test RMSE of the degree, NaN if it was not evaluated
+     */
+    public double getError(int degree) {
+        return degree < errors.length ? errors[degree] : Double.NaN;
+    }
+
+    /**
+     * Gets the test RMSE of every degree up to the highest one reached.
+     * @return a copy of the errors indexed by degree, NaN for the degrees that were not evaluated
+     */
+    public double[] getErrors() {
+        return Arrays.copyOf(errors, errors.length);
+    }
+
+    /**
+     * Did the search evaluate every degree its strategy asked for? A search stopped by its deadline or cancelled is not
+     * complete, whereas one stopped by its early stopping rule is.
+     * @return true if every degree required by the strategy was evaluated
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+}
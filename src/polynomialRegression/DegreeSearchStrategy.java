@@ -0,0 +1,111 @@
+package polynomialRegression;
+
+/**
+ * Class representing the strategy of a polynomial degree search, that is, which degrees are evaluated on the test data and
+ * when the search stops. Three rules can be combined:
+ * <ul>
+ *     <li>a maximum degree, which caps the degrees tried;</li>
+ *     <li>a patience, which stops the search once the test RMSE has increased for that many consecutive evaluated
+ *     degrees, as test errors tend to explode past the best degree;</li>
+ *     <li>a coarse step, which first evaluates every step-th degree and then every degree within a step of the best
+ *     coarse one.</li>
+ * </ul>
+ * @author gorosgobe
+ */
+public class DegreeSearchStrategy {
+
+    /** The highest degree to try*/
+    private final int maxDegree;
+    /** The number of consecutive increases of the test RMSE that stops the search, 0 to never stop early*/
+    private final int patience;
+    /** The distance between the degrees evaluated in the coarse pass, 1 to evaluate every degree*/
+    private final int coarseStep;
+
+    /**
+     * Constructs a strategy with the supplied rules.
+     * @param maxDegree the highest degree to try
+     * @param patience the number of consecutive increases of the test RMSE that stops the search, 0 to never stop early
+     * @param coarseStep the distance between the degrees evaluated in the coarse pass, 1 to evaluate every degree
+     */
+    public DegreeSearchStrategy(int maxDegree, int patience, int coarseStep) {
+        if (maxDegree < 0) {
+            throw new IllegalArgumentException("Polynomial degree should be >= 0");
+        }
+
+        if (patience < 0) {
+            throw new IllegalArgumentException("Patience should be >= 0");
+        }
+
+        if (coarseStep < 1) {
+            throw new IllegalArgumentException("Coarse step should be >= 1");
+        }
+
+        this.maxDegree = maxDegree;
+        this.patience = patience;
+        this.coarseStep = coarseStep;
+    }
+
+    /**
+     * Gets the strategy evaluating every candidate degree.
+     * @return the exhaustive strategy
+     */
+    public static DegreeSearchStrategy exhaustive() {
+        return new DegreeSearchStrategy(Integer.MAX_VALUE, 0, 1);
+    }
+
+    /**
+     * Gets the strategy evaluating every candidate degree up to the supplied one.
+     * @param maxDegree the highest degree to try
+     * @return the strategy with a maximum degree
+     */
+    public static DegreeSearchStrategy maxDegree(int maxDegree) {
+        return new DegreeSearchStrategy(maxDegree, 0, 1);
+    }
+
+    /**
+     * Gets the strategy evaluating every degree until the test RMSE has increased for the supplied number of consecutive
+     * degrees.
+     * @param patience the number of consecutive increases of the test RMSE that stops the search
+     * @return the early stopping strategy
+     */
+    public static DegreeSearchStrategy earlyStopping(int patience) {
+        if (patience < 1) {
+            throw new IllegalArgumentException("Patience should be >= 1");
+        }
+
+        return new DegreeSearchStrategy(Integer.MAX_VALUE, patience, 1);
+    }
+
+    /**
+     * Gets the strategy evaluating every step-th degree and then every degree within a step of the best one.
+     * @param coarseStep the distance between the degrees evaluated in the coarse pass
+     * @return the coarse to fine strategy
+     */
+    public static DegreeSearchStrategy coarseToFine(int coarseStep) {
+        return new DegreeSearchStrategy(Integer.MAX_VALUE, 0, coarseStep);
+    }
+
+    /**
+     * Gets the highest degree to try.
+     * @return the maximum degree
+     */
+    public int getMaxDegree() {
+        return maxDegree;
+    }
+
+    /**
+     * Gets the number of consecutive increases of the test RMSE that stops the search.
+     * @return the patience, 0 if the search never stops early
+     */
+    public int getPatience() {
+        return patience;
+    }
+
+    /**
+     * Gets the distance between the degrees evaluated in the coarse pass.
+     * @return the coarse step, 1 if every degree is evaluated
+     */
+    public int getCoarseStep() {
+        return coarseStep;
+    }
+}
@@ -0,0 +1,198 @@
+package polynomialRegression;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * Enum representing the basis a polynomial regression is fitted in. Every basis is defined by a three-term recurrence
+ * p<sub>0</sub> = 1, p<sub>k+1</sub>(t) = alpha<sub>k</sub> t p<sub>k</sub>(t) - beta<sub>k</sub> p<sub>k-1</sub>(t), so
+ * each column of the design matrix costs one multiply-add per entry and predictions are evaluated with Clenshaw's
+ * algorithm. The monomial basis is fitted on x directly. The orthogonal bases are fitted on x mapped linearly from the
+ * range of the training data into [-1, 1], where their columns stay far from linearly dependent, so fits of high degree
+ * remain well conditioned.
+ * @author gorosgobe
+ */
+public enum PolynomialBasis {
+
+    /** 1, x, x<sup>2</sup>, ...*/
+    MONOMIAL {
+        @Override
+        double alpha(int k) {
+            return 1.0;
+        }
+
+        @Override
+        double beta(int k) {
+            return 0.0;
+        }
+    },
+
+    /** Chebyshev polynomials of the first kind, T<sub>k+1</sub> = 2t T<sub>k</sub> - T<sub>k-1</sub>*/
+    CHEBYSHEV {
+        @Override
+        double alpha(int k) {
+            return k == 0 ? 1.0 : 2.0;
+        }
+
+        @Override
+        double beta(int k) {
+            return k == 0 ? 0.0 : 1.0;
+        }
+    },
+
+    /** Legendre polynomials, (k + 1) P<sub>k+1</sub> = (2k + 1) t P<sub>k</sub> - k P<sub>k-1</sub>*/
+    LEGENDRE {
+        @Override
+        double alpha(int k) {
+            return (2.0 * k + 1.0) / (k + 1.0);
+        }
+
+        @Override
+        double beta(int k) {
+            return k / (k + 1.0);
+        }
+    };
+
+    /**
+     * Gets the factor of t p<sub>k</sub> in the recurrence giving p<sub>k+1</sub>.
+     * @param k the degree of the last polynomial
+     * @return alpha<sub>k</sub>
+     */
+    abstract double alpha(int k);
+
+    /**
+     * Gets the factor of p<sub>k-1</sub> in the recurrence giving p<sub>k+1</sub>.
+     * @param k the degree of the last polynomial
+     * @return beta<sub>k</sub>
+     */
+    abstract double beta(int k);
+
+    /**
+     * Is x mapped into [-1, 1] before being evaluated in this basis?
+     * @return false for the monomial basis, true for the orthogonal ones
+     */
+    public boolean isMapped() {
+        return this != MONOMIAL;
+    }
+
+    /**
+     * Fills the columns of a column-major design matrix with the polynomials of this basis evaluated at every t.
+     * @param ts the points to evaluate the polynomials at, one per row
+     * @param data the column-major array of the design matrix
+     * @param columns the number of columns to fill, that is, the degree plus 1
+     */
+    public void fillColumns(double[] ts, double[] data, int columns) {
+        int rows = ts.length;
+
+        for (int i = 0; i < rows; i++) {
+            data[i] = 1.0;
+        }
+
+        for (int k = 0; k + 1 < columns; k++) {
+            nextColumn(k, ts, data, (k - 1) * rows, data, k * rows, data, (k + 1) * rows);
+        }
+    }
+
+    /**
+     * Computes the column of p<sub>k+1</sub> from the columns of p<sub>k-1</sub> and p<sub>k</sub>.
+     * @param k the degree of the last polynomial
+     * @param ts the points the polynomials are evaluated at
+     * @param previous the array holding the column of p<sub>k-1</sub>, ignored if k is 0
+     * @param previousStart the index of the first entry of the column of p<sub>k-1</sub>
+     * @param current the array holding the column of p<sub>k</sub>
+     * @param currentStart the index of the first entry of the column of p<sub>k</sub>
+     * @param next the array the column of p<sub>k+1</sub> is written to
+     * @param nextStart the index the first entry of the column of p<sub>k+1</sub> is written to
+     */
+    public void nextColumn(int k, double[] ts, double[] previous, int previousStart, double[] current, int currentStart,
+                           double[] next, int nextStart) {
+        double alpha = alpha(k);
+        double beta = beta(k);
+
+        if (k == 0 || beta == 0.0) {
+            for (int i = 0; i < ts.length; i++) {
+                next[nextStart + i] = alpha * ts[i] * current[currentStart + i];
+            }
+        } else {
+            for (int i = 0; i < ts.length; i++) {
+                next[nextStart + i] = alpha * ts[i] * current[currentStart + i] - beta * previous[previousStart + i];
+            }
+        }
+    }
+
+    /**
+     * Evaluates the polynomial with the supplied coefficients in this basis at t, with Clenshaw's algorithm, which runs
+     * the recurrence backwards over the coefficients instead of evaluating every polynomial of the basis. In the
+     * monomial basis this is Horner's scheme.
+     * @param coefficients the coefficients in this basis, lowest degree first
+     * @param t the point to evaluate the polynomial at
+     * @return the value of the polynomial at t
+     */
+    public double evaluate(double[] coefficients, double t) {
+        int n = coefficients.length - 1;
+        double b1 = 0.0;
+        double b2 = 0.0;
+
+        for (int k = n; k >= 1; k--) {
+            double b = coefficients[k] + alpha(k) * t * b1 - beta(k + 1) * b2;
+            b2 = b1;
+            b1 = b;
+        }
+
+        return coefficients[0] + alpha(0) * t * b1 - beta(1) * b2;
+    }
+
+    /**
+     * Evaluates the polynomial with the supplied coefficients in this basis at t, with Clenshaw's algorithm, reading the
+     * coefficients directly from a buffer, such as a memory-mapped one. See <em>evaluate(double[], double)</em>.
+     * @param coefficients the coefficients in this basis, lowest degree first, from index 0 to the limit of the buffer
+     * @param t the point to evaluate the polynomial at
+     * @return the value of the polynomial at t
+     */
+    public double evaluate(DoubleBuffer coefficients, double t) {
+        int n = coefficients.limit() - 1;
+        double b1 = 0.0;
+        double b2 = 0.0;
+
+        for (int k = n; k >= 1; k--) {
+            double b = coefficients.get(k) + alpha(k) * t * b1 - beta(k + 1) * b2;
+            b2 = b1;
+            b1 = b;
+        }
+
+        return coefficients.get(0) + alpha(0) * t * b1 - beta(1) * b2;
+    }
+
+    /**
+     * Converts coefficients in this basis into monomial coefficients in the same variable t, by building every
+     * polynomial of the basis with the recurrence.
+     * @param coefficients the coefficients in this basis, lowest degree first
+     * @return the coefficients of 1, t, t<sup>2</sup>, ..., lowest degree first
+     */
+    public double[] toMonomial(double[] coefficients) {
+        int length = coefficients.length;
+        double[] result = new double[length];
+        double[] previous = new double[length];
+        double[] current = new double[length];
+        current[0] = 1.0;
+
+        for (int k = 0; k < length; k++) {
+            for (int j = 0; j <= k; j++) {
+                result[j] += coefficients[k] * current[j];
+            }
+
+            if (k + 1 < length) {
+                double[] next = new double[length];
+                double alpha = alpha(k);
+                double beta = beta(k);
+                for (int j = 0; j <= k; j++) {
+                    next[j + 1] += alpha * current[j];
+                    next[j] -= beta * previous[j];
+                }
+                previous = current;
+                current = next;
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,345 @@
+package polynomialRegression;
+
+import Utils.ColumnarDataset;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Class representing a search for the polynomial degree with the lowest RMSE on test data. The calling thread fits every
+ * candidate degree in a <em>PolynomialDegreeSweep</em> and submits the evaluation of each fit on the test data as a task
+ * to the supplied executor, which the search never shuts down, so no thread is created by the search itself. The search
+ * stops early if its deadline passes or if it is cancelled from another thread, returning the best degree found so far.
+ * Which degrees are fitted and evaluated is decided by a <em>DegreeSearchStrategy</em>.
+ * @author gorosgobe
+ */
+public class PolynomialDegreeSearch {
+
+    /** The longest time waiting for an evaluation before checking again whether the search was cancelled*/
+    private static final long CANCELLATION_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /** Dataset holding the training data by columns*/
+    private final ColumnarDataset trainingData;
+    /** Dataset holding the test data by columns*/
+    private final ColumnarDataset testData;
+    /** The executor running the evaluations on the test data*/
+    private final ExecutorService executor;
+    /** The strategy deciding which degrees are evaluated*/
+    private final DegreeSearchStrategy strategy;
+    /** The basis the polynomials are fitted in*/
+    private final PolynomialBasis basis;
+    /** The highest degree to try*/
+    private final int maxDegree;
+    /** Has the search been cancelled?*/
+    private volatile boolean cancelled;
+
+    /**
+     * Constructs a search running its evaluations on the common fork/join pool.
+     * @param trainingData the training data for the regression
+     * @param testData the data we want to optimise the regression for
+     */
+    public PolynomialDegreeSearch(ColumnarDataset trainingData, ColumnarDataset testData) {
+        this(trainingData, testData, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs an exhaustive search running its evaluations on the supplied executor. Every degree from 0 up to the
+     * number of test points minus 2, and below the number of training points, is a candidate.
+     * @param trainingData the training data for the regression
+     * @param testData the data we want to optimise the regression for
+     * @param executor the executor running the evaluations on the test data
+     */
+    public PolynomialDegreeSearch(ColumnarDataset trainingData, ColumnarDataset testData, ExecutorService executor) {
+        this(trainingData, testData, executor, DegreeSearchStrategy.exhaustive());
+    }
+
+    /**
+     * Constructs a search with the supplied strategy running its evaluations on the supplied executor. The candidate
+     * degrees go from 0 up to the number of test points minus 2, below the number of training points and up to the
+     * maximum degree of the strategy.
+     * @param trainingData the training data for the regression
+     * @param testData the data we want to optimise the regression for
+     * @param executor the executor running the evaluations on the test data
+     * @param strategy the strategy deciding which degrees are evaluated
+     */
+    public PolynomialDegreeSearch(ColumnarDataset trainingData, ColumnarDataset testData, ExecutorService executor,
+                                  DegreeSearchStrategy strategy) {
+        this(trainingData, testData, executor, strategy, PolynomialBasis.MONOMIAL);
+    }
+
+    /**
+     * Constructs a search with the supplied strategy, fitting the polynomials in the supplied basis and running its
+     * evaluations on the supplied executor. The orthogonal bases keep the fits of high degree meaningful.
+     * @param trainingData the training data for the regression
+     * @param testData the data we want to optimise the regression for
+     * @param executor the executor running the evaluations on the test data
+     * @param strategy the strategy deciding which degrees are evaluated
+     * @param basis the basis to fit the polynomials in
+     */
+    public PolynomialDegreeSearch(ColumnarDataset trainingData, ColumnarDataset testData, ExecutorService executor,
+                                  DegreeSearchStrategy strategy, PolynomialBasis basis) {
+        if (trainingData.size() == 0) {
+            throw new IllegalArgumentException("Empty training data");
+        }
+
+        if (testData.size() == 0) {
+            throw new IllegalArgumentException("Empty test data");
+        }
+
+        this.trainingData = trainingData;
+        this.testData = testData;
+        this.executor = executor;
+        this.strategy = strategy;
+        this.basis = basis;
+        this.maxDegree = Math.min(Math.min(Math.max(testData.size() - 2, 0), trainingData.size() - 1),
+                strategy.getMaxDegree());
+    }
+
+    /**
+     * Searches every candidate degree without a deadline.
+     * @return the result of the search
+     * @throws InterruptedException if the calling thread is interrupted while searching
+     */
+    public DegreeSearchResult search() throws InterruptedException {
+        return search(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Searches the candidate degrees until the strategy is done with them, the supplied time elapses or the search is
+     * cancelled. Evaluations still pending when the search stops are cancelled.
+     * @param timeout the maximum time to search for
+     * @param unit the unit of the timeout
+     * @return the result of the search, with the best degree found so far if it stopped early
+     * @throws InterruptedException if the calling thread is interrupted while searching
+     */
+    public DegreeSearchResult search(long timeout, TimeUnit unit) throws InterruptedException {
+        long start = System.nanoTime();
+        long timeoutNanos = unit.toNanos(timeout);
+        int patience = strategy.getPatience();
+        int coarseStep = strategy.getCoarseStep();
+
+        PolynomialDegreeSweep sweep = new PolynomialDegreeSweep(trainingData, maxDegree, basis);
+        PolynomialRegression[] fits = new PolynomialRegression[maxDegree + 1];
+        List<Future<Double>> evaluations = new ArrayList<>(Collections.nCopies(maxDegree + 1, (Future<Double>) null));
+        double[] errors = new double[maxDegree + 1];
+        Arrays.fill(errors, Double.NaN);
+
+        //evaluated degrees whose error has not been checked against the early stopping rule yet
+        Deque<Integer> unchecked = new ArrayDeque<>();
+        double previousError = Double.POSITIVE_INFINITY;
+        int increases = 0;
+        boolean complete = true;
+
+        try {
+            while (sweep.hasNextDegree() && (patience == 0 || increases < patience)) {
+                if (shouldStop(start, timeoutNanos)) {
+                    complete = false;
+                    break;
+                }
+
+                int degree = sweep.nextDegree();
+                fits[degree] = sweep.toPolynomialRegression();
+
+                if (degree % coarseStep == 0) {
+                    submit(fits[degree], degree, evaluations);
+
+                    if (patience > 0) {
+                        unchecked.add(degree);
+
+                        //waits for the oldest evaluation only once patience evaluations are in flight
+                        while (!unchecked.isEmpty() && increases < patience
+                                && (unchecked.size() > patience || evaluations.get(unchecked.peek()).isDone())) {
+                            int checked = unchecked.poll();
+                            if (!collect(evaluations.get(checked), checked, errors, start, timeoutNanos)) {
+                                complete = false;
+                                break;
+                            }
+
+                            boolean increased = Double.isNaN(errors[checked]) || errors[checked] > previousError;
+                            increases = increased ? increases + 1 : 0;
+                            previousError = errors[checked];
+                        }
+
+                        if (!complete) {
+                            break;
+                        }
+                    }
+                }
+            }
+
+            int lastDegree = sweep.getDegree();
+            boolean stoppedEarly = patience > 0 && increases >= patience;
+
+            //degrees evaluated past the one stopping the search are not kept
+            if (!stoppedEarly) {
+                complete = collectAll(evaluations, lastDegree, errors, start, timeoutNanos) && complete;
+            }
+
+            if (coarseStep > 1 && complete) {
+                int coarseBest = new DegreeSearchResult(errors, true).getOptimalDegree();
+                int from = Math.max(coarseBest - coarseStep + 1, 0);
+                int to = Math.min(coarseBest + coarseStep - 1, lastDegree);
+
+                for (int degree = from; degree <= to && coarseBest >= 0; degree++) {
+                    if (evaluations.get(degree) == null) {
+                        submit(fits[degree], degree, evaluations);
+                    }
+                }
+
+                complete = collectAll(evaluations, lastDegree, errors, start, timeoutNanos);
+            }
+
+            return new DegreeSearchResult(Arrays.copyOf(errors, lastDegree + 1), complete && !cancelled);
+        } finally {
+            for (Future<Double> evaluation : evaluations) {
+                if (evaluation != null) {
+                    evaluation.cancel(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Should the search stop fitting degrees, because it has been cancelled or has run out of time?
+     * @param start the time at which the search started, in nanoseconds
+     * @param timeoutNanos the maximum time to search for, in nanoseconds
+     * @return true if the search should stop
+     * @throws InterruptedException if the calling thread has been interrupted
+     */
+    private boolean shouldStop(long start, long timeoutNanos) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+
+        return cancelled || System.nanoTime() - start >= timeoutNanos;
+    }
+
+    /**
+     * Submits the evaluation of a fit on the test data to the executor.
+     * @param fit the fitted regression
+     * @param degree the degree of the fit
+     * @param evaluations the evaluations indexed by degree
+     */
+    private void submit(PolynomialRegression fit, int degree, List<Future<Double>> evaluations) {
+        evaluations.set(degree, executor.submit(() -> fit.getTestDataRootMeanSquareError(testData)));
+    }
+
+    /**
+     * Waits for every evaluation submitted up to the supplied degree. Once the search is cancelled or out of time, only
+     * the evaluations that already finished are kept.
+     * @param evaluations the evaluations indexed by degree
+     * @param lastDegree the highest degree fitted
+     * @param errors the errors indexed by degree, filled in with the results
+     * @param start the time at which the search started, in nanoseconds
+     * @param timeoutNanos the maximum time to search for, in nanoseconds
+     * @return true if every evaluation finished in time
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    private boolean collectAll(List<Future<Double>> evaluations, int lastDegree, double[] errors, long start,
+                               long timeoutNanos) throws InterruptedException {
+        boolean complete = true;
+
+        for (int degree = 0; degree <= lastDegree; degree++) {
+            Future<Double> evaluation = evaluations.get(degree);
+
+            if (evaluation == null || !Double.isNaN(errors[degree])) {
+                continue;
+            }
+
+            if (complete && !cancelled) {
+                complete = collect(evaluation, degree, errors, start, timeoutNanos);
+            } else if (evaluation.isDone() && !evaluation.isCancelled()) {
+                //only keeps the evaluations that finished before the search stopped
+                collect(evaluation, degree, errors, start, timeoutNanos);
+            }
+        }
+
+        return complete && !cancelled;
+    }
+
+    /**
+     * Waits for an evaluation until the search runs out of time or is cancelled, and stores its result. The wait is
+     * split into slices of at most <em>CANCELLATION_CHECK_NANOS</em>, so a cancellation is noticed even while an
+     * evaluation is still running or queued.
+     * @param evaluation the evaluation to wait for
+     * @param degree the degree of the evaluated fit
+     * @param errors the errors indexed by degree, filled in with the result
+     * @param start the time at which the search started, in nanoseconds
+     * @param timeoutNanos the maximum time to search for, in nanoseconds
+     * @return true if the evaluation finished in time and before the search was cancelled
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    private boolean collect(Future<Double> evaluation, int degree, double[] errors, long start,
+                            long timeoutNanos) throws InterruptedException {
+        try {
+            while (!evaluation.isDone()) {
+                long remaining = timeoutNanos - (System.nanoTime() - start);
+                if (cancelled || remaining <= 0) {
+                    return false;
+                }
+
+                try {
+                    errors[degree] = evaluation.get(Math.min(remaining, CANCELLATION_CHECK_NANOS), TimeUnit.NANOSECONDS);
+                    return true;
+                } catch (TimeoutException e) {
+                    //checks the deadline and the cancellation again
+                }
+            }
+
+            errors[degree] = evaluation.get();
+            return true;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Evaluation of a polynomial degree failed", e.getCause());
+        }
+    }
+
+    /**
+     * Cancels the search. A search running on another thread stops before fitting its next degree, or within
+     * <em>CANCELLATION_CHECK_NANOS</em> if it is waiting for an evaluation, and returns the best degree found so far.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Has the search been cancelled?
+     * @return true if the search has been cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Gets the strategy of the search.
+     * @return the strategy deciding which degrees are evaluated
+     */
+    public DegreeSearchStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Gets the basis the polynomials are fitted in.
+     * @return the basis of the search
+     */
+    public PolynomialBasis getBasis() {
+        return basis;
+    }
+
+    /**
+     * Gets the highest degree the search tries.
+     * @return the maximum degree
+     */
+    public int getMaxDegree() {
+        return maxDegree;
+    }
+}
@@ -0,0 +1,406 @@
+package polynomialRegression;
+
+import Utils.ColumnarDataset;
+import Utils.QRDecomposition;
+
+import java.util.Arrays;
+
+/**
+ * Class representing a sweep over the polynomial regressions of increasing degree on the same training data. The design
+ * matrix of degree d is the one of degree d - 1 plus the column of x<sup>d</sup>, so instead of factorizing every design
+ * matrix from scratch, the sweep keeps the Householder QR decomposition of the current one and appends one column at a
+ * time: the new column is reflected by the existing Householder vectors, a new vector is computed for it and QTy is
+ * updated with it. The coefficients of a degree come from a back substitution on the leading part of R, and its training
+ * residual is the tail of QTy, so fitting every degree from 0 to D costs about as much as a single fit of degree D.
+ * The columns are the polynomials of a <em>PolynomialBasis</em>, each computed from the previous two by its recurrence.
+ * @author gorosgobe
+ */
+public class PolynomialDegreeSweep {
+
+    /** Dataset holding the training data by columns*/
+    private final ColumnarDataset trainingData;
+    /** The rows of the dataset the sweep is fitted on, null if it is fitted on every row*/
+    private final int[] trainingRows;
+    /** The scale and the shift of the mapping t = scale * x + shift into the domain of the basis*/
+    private final double[] mapping;
+    /** The basis the polynomials are fitted in*/
+    private final PolynomialBasis basis;
+    /** The xs of the training data, mapped into the domain of the basis*/
+    private final double[] ts;
+    /** The unreflected column of the polynomial of the degree before the current one*/
+    private double[] previousColumn;
+    /** The unreflected column of the polynomial of the current degree*/
+    private double[] currentColumn;
+    /** The number of training points, which is the number of rows of the design matrix*/
+    private final int rows;
+    /** The highest degree the sweep can reach*/
+    private final int maxDegree;
+    /** Column-major working array, holding R above the diagonal and the Householder vectors on and below it*/
+    private final double[] qr;
+    /** The diagonal of R*/
+    private final double[] rDiagonal;
+    /** The response vector, with the reflections of every column appended so far applied*/
+    private final double[] qty;
+    /** The degree of the current fit, -1 before the first column is appended*/
+    private int degree;
+    /** The coefficients of the current fit, computed lazily*/
+    private double[] coefficients;
+    /** The responses of the training data, kept once leave-one-out errors are requested*/
+    private double[] responses;
+    /** The leverages of the training points in the fit of degree <em>projectedDegree</em>*/
+    private double[] leverages;
+    /** The fitted values of the training points in the fit of degree <em>projectedDegree</em>*/
+    private double[] fitted;
+    /** The degree the leverages and fitted values are up to date with, -1 if none*/
+    private int projectedDegree = -1;
+
+    /**
+     * Constructs a sweep in the monomial basis on the supplied training data, which must have a single independent
+     * variable. No degree is fitted until <em>nextDegree</em> is called.
+     * @param trainingData the training data
+     * @param maxDegree the highest degree to fit, which must be lower than the number of training points
+     */
+    public PolynomialDegreeSweep(ColumnarDataset trainingData, int maxDegree) {
+        this(trainingData, maxDegree, PolynomialBasis.MONOMIAL);
+    }
+
+    /**
+     * Constructs a sweep in the supplied basis on the supplied training data, which must have a single independent
+     * variable. No degree is fitted until <em>nextDegree</em> is called.
+     * @param trainingData the training data
+     * @param maxDegree the highest degree to fit, which must be lower than the number of training points
+     * @param basis the basis to fit the polynomials in
+     */
+    public PolynomialDegreeSweep(ColumnarDataset trainingData, int maxDegree, PolynomialBasis basis) {
+        this(trainingData, null, maxDegree, basis);
+    }
+
+    /**
+     * Constructs a sweep in the supplied basis on the supplied rows of a dataset, which must have a single independent
+     * variable, such as the training rows of a cross-validation fold. Only the xs and ys of those rows are read into the
+     * working arrays of the sweep, the dataset itself is not copied. No degree is fitted until <em>nextDegree</em> is
+     * called.
+     * @param data the dataset holding the training data
+     * @param trainingRows the indices of the rows of the dataset to fit, or null to fit every row
+     * @param maxDegree the highest degree to fit, which must be lower than the number of training points
+     * @param basis the basis to fit the polynomials in
+     */
+    public PolynomialDegreeSweep(ColumnarDataset data, int[] trainingRows, int maxDegree, PolynomialBasis basis) {
+        if (data.getNumberOfIndependentVariables() != 1) {
+            throw new IllegalArgumentException("Points must have a single independent variable");
+        }
+
+        int rows = trainingRows == null ? data.size() : trainingRows.length;
+        if (maxDegree < 0) {
+            throw new IllegalArgumentException("Polynomial degree should be >= 0");
+        }
+
+        if (maxDegree >= rows) {
+            throw new IllegalArgumentException("Polynomial degree should be lower than the number of training points");
+        }
+
+        this.trainingData = data;
+        this.trainingRows = trainingRows == null ? null : Arrays.copyOf(trainingRows, rows);
+        this.rows = rows;
+        this.maxDegree = maxDegree;
+        this.basis = basis;
+        this.ts = new double[rows];
+        this.qty = new double[rows];
+        if (trainingRows == null) {
+            data.getXColumn(0).get(ts);
+            data.getYColumn().get(qty);
+        } else {
+            for (int i = 0; i < rows; i++) {
+                ts[i] = data.getX(trainingRows[i]);
+                qty[i] = data.getY(trainingRows[i]);
+            }
+        }
+
+        this.mapping = PolynomialRegression.computeMapping(basis, ts);
+        if (basis.isMapped()) {
+            for (int i = 0; i < rows; i++) {
+                ts[i] = mapping[0] * ts[i] + mapping[1];
+            }
+        }
+        this.previousColumn = new double[rows];
+        this.currentColumn = new double[rows];
+        this.qr = new double[rows * (maxDegree + 1)];
+        this.rDiagonal = new double[maxDegree + 1];
+        this.degree = -1;
+    }
+
+    /**
+     * Is there a degree left to fit?
+     * @return true if the current degree is lower than the maximum degree
+     */
+    public boolean hasNextDegree() {
+        return degree < maxDegree;
+    }
+
+    /**
+     * Fits the next degree by appending the column of its powers of x to the decomposition.
+     * @return the degree just fitted
+     */
+    public int nextDegree() {
+        if (!hasNextDegree()) {
+            throw new IllegalStateException("Maximum degree " + maxDegree + " already fitted");
+        }
+
+        int d = degree + 1;
+        int columnStart = d * rows;
+
+        //same entries as the design matrix of PolynomialRegression, so both fits agree
+        if (d == 0) {
+            Arrays.fill(currentColumn, 1.0);
+        } else {
+            basis.nextColumn(d - 1, ts, previousColumn, 0, currentColumn, 0, previousColumn, 0);
+            double[] swap = previousColumn;
+            previousColumn = currentColumn;
+            currentColumn = swap;
+        }
+        System.arraycopy(currentColumn, 0, qr, columnStart, rows);
+
+        //reflections of the previous columns, in the order the full decomposition applies them
+        for (int k = 0; k < d; k++) {
+            QRDecomposition.applyHouseholder(qr, k * rows + k, qr, columnStart + k, rows - k);
+        }
+
+        rDiagonal[d] = QRDecomposition.householderColumn(qr, columnStart + d, rows - d);
+        QRDecomposition.applyHouseholder(qr, columnStart + d, qty, d, rows - d);
+
+        degree = d;
+        coefficients = null;
+        return d;
+    }
+
+    /**
+     * Gets the degree of the current fit.
+     * @return the degree of the current fit, -1 if no degree has been fitted yet
+     */
+    public int getDegree() {
+        return degree;
+    }
+
+    /**
+     * Gets the basis the polynomials are fitted in.
+     * @return the basis of the sweep
+     */
+    public PolynomialBasis getBasis() {
+        return basis;
+    }
+
+    /**
+     * Gets the highest degree the sweep can reach.
+     * @return the maximum degree
+     */
+    public int getMaxDegree() {
+        return maxDegree;
+    }
+
+    /**
+     * Gets the coefficients of the current fit, lowest degree first, by back substitution on the leading part of R.
+     * @return a copy of the coefficients of the current fit
+     */
+    public double[] getCoefficients() {
+        checkFitted();
+
+        if (coefficients == null) {
+            int width = degree + 1;
+            double[] result = new double[width];
+
+            for (int i = width - 1; i >= 0; i--) {
+                double value = qty[i];
+                for (int j = i + 1; j < width; j++) {
+                    value -= qr[j * rows + i] * result[j];
+                }
+                result[i] = value / rDiagonal[i];
+            }
+
+            coefficients = result;
+        }
+
+        return Arrays.copyOf(coefficients, coefficients.length);
+    }
+
+    /**
+     * Gets the RMSE (Root Mean Square Error) of the current fit on the training data. The residual of a least squares fit
+     * with d + 1 columns is the part of QTy below row d, so no prediction is evaluated.
+     * @return the RMSE of the training data
+     */
+    public double getTrainingRootMeanSquareError() {
+        checkFitted();
+
+        double sumOfSquares = 0.0;
+        for (int i = degree + 1; i < rows; i++) {
+            sumOfSquares += qty[i] * qty[i];
+        }
+
+        return Math.sqrt(sumOfSquares / rows);
+    }
+
+    /**
+     * Gets the PRESS (predicted residual error sum of squares) statistic of the current fit, the sum of the squared
+     * residuals of every training point in the fit without it, in closed form. The leverages and the fitted values of the
+     * training points are the squared norms of the rows of the thin Q and the projection of y onto its columns, so only the
+     * columns of Q of the degrees fitted since the last call are built, each one in O(n d).
+     * @return the PRESS statistic of the current fit
+     */
+    public double getPress() {
+        checkFitted();
+
+        if (responses == null) {
+            responses = new double[rows];
+            leverages = new double[rows];
+            fitted = new double[rows];
+            if (trainingRows == null) {
+                trainingData.getYColumn().get(responses);
+            } else {
+                for (int i = 0; i < rows; i++) {
+                    responses[i] = trainingData.getY(trainingRows[i]);
+                }
+            }
+        }
+
+        double[] column = new double[rows];
+        for (int j = projectedDegree + 1; j <= degree; j++) {
+            column[j] = 1.0;
+            for (int k = j; k >= 0; k--) {
+                QRDecomposition.applyHouseholder(qr, k * rows + k, column, k, rows - k);
+            }
+
+            for (int i = 0; i < rows; i++) {
+                leverages[i] += column[i] * column[i];
+                fitted[i] += column[i] * qty[j];
+            }
+            Arrays.fill(column, 0.0);
+        }
+        projectedDegree = degree;
+
+        double press = 0.0;
+        for (int i = 0; i < rows; i++) {
+            double residual = (responses[i] - fitted[i]) / (1.0 - leverages[i]);
+            press += residual * residual;
+        }
+
+        return press;
+    }
+
+    /**
+     * Gets the RMSE (Root Mean Square Error) of the leave-one-out residuals of the current fit, an estimate of its test
+     * error without a test set.
+     * @return the leave-one-out RMSE of the current fit
+     */
+    public double getLeaveOneOutRootMeanSquareError() {
+        return Math.sqrt(getPress() / rows);
+    }
+
+    /**
+     * Computes the prediction of the current fit, without building a <em>PolynomialRegression</em>.
+     * @param x the value to predict for
+     * @return the prediction of the current fit
+     */
+    public double getPrediction(double x) {
+        getCoefficients();
+        return basis.evaluate(coefficients, mapping[0] * x + mapping[1]);
+    }
+
+    /**
+     * Gets the mapping t = scale * x + shift of the xs into the domain of the basis, computed from the training data.
+     * @return the scale and the shift of the mapping, the identity for the monomial basis
+     */
+    public double[] getMapping() {
+        return Arrays.copyOf(mapping, mapping.length);
+    }
+
+    /**
+     * Gets the RMSE (Root Mean Square Error) of the current fit on the supplied test data.
+     * @param testData the test data to compute the RMSE from
+     * @return the RMSE for the supplied test data
+     */
+    public double getTestRootMeanSquareError(ColumnarDataset testData) {
+        return toPolynomialRegression().getTestDataRootMeanSquareError(testData);
+    }
+
+    /**
+     * Builds the polynomial regression of the current degree on the training data, with the coefficients of the sweep.
+     * @return the polynomial regression of the current fit
+     */
+    public PolynomialRegression toPolynomialRegression() {
+        if (trainingRows == null) {
+            return new PolynomialRegression(trainingData, getCoefficients(), basis);
+        }
+
+        double[] xs = new double[rows];
+        double[] ys = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            xs[i] = trainingData.getX(trainingRows[i]);
+            ys[i] = trainingData.getY(trainingRows[i]);
+        }
+
+        return new PolynomialRegression(new ColumnarDataset(new double[][] {xs}, ys), getCoefficients(), basis);
+    }
+
+    /**
+     * Checks a degree has been fitted.
+     */
+    private void checkFitted() {
+        if (degree < 0) {
+            throw new IllegalStateException("No degree fitted yet");
+        }
+    }
+
+    /**
+     * Fits every degree from 0 to the supplied maximum degree and computes the RMSE of each one on the test data.
+     * @param trainingData the training data
+     * @param testData the test data to compute the RMSE from
+     * @param maxDegree the highest degree to fit
+     * @return the RMSE for the test data, indexed by degree
+     */
+    public static double[] testRootMeanSquareErrors(ColumnarDataset trainingData, ColumnarDataset testData,
+                                                    int maxDegree) {
+        return testRootMeanSquareErrors(trainingData, testData, maxDegree, PolynomialBasis.MONOMIAL);
+    }
+
+    /**
+     * Fits every degree from 0 to the supplied maximum degree in the supplied basis and computes the RMSE of each one on
+     * the test data.
+     * @param trainingData the training data
+     * @param testData the test data to compute the RMSE from
+     * @param maxDegree the highest degree to fit
+     * @param basis the basis to fit the polynomials in
+     * @return the RMSE for the test data, indexed by degree
+     */
+    public static double[] testRootMeanSquareErrors(ColumnarDataset trainingData, ColumnarDataset testData,
+                                                    int maxDegree, PolynomialBasis basis) {
+        PolynomialDegreeSweep sweep = new PolynomialDegreeSweep(trainingData, maxDegree, basis);
+        double[] errors = new double[maxDegree + 1];
+
+        while (sweep.hasNextDegree()) {
+            int d = sweep.nextDegree();
+            errors[d] = sweep.getTestRootMeanSquareError(testData);
+        }
+
+        return errors;
+    }
+
+    /**
+     * Fits every degree from 0 to the supplied maximum degree in the supplied basis and computes the leave-one-out RMSE
+     * of each one on the training data, which costs about as much as the sweep itself.
+     * @param trainingData the training data
+     * @param maxDegree the highest degree to fit
+     * @param basis the basis to fit the polynomials in
+     * @return the leave-one-out RMSE, indexed by degree
+     */
+    public static double[] leaveOneOutRootMeanSquareErrors(ColumnarDataset trainingData, int maxDegree,
+                                                           PolynomialBasis basis) {
+        PolynomialDegreeSweep sweep = new PolynomialDegreeSweep(trainingData, maxDegree, basis);
+        double[] errors = new double[maxDegree + 1];
+
+        while (sweep.hasNextDegree()) {
+            int d = sweep.nextDegree();
+            errors[d] = sweep.getLeaveOneOutRootMeanSquareError();
+        }
+
+        return errors;
+    }
+}
@@ -0,0 +1,189 @@
+package polynomialRegression;
+
+import Utils.Predictor;
+
+/**
+ * Class representing a fitted polynomial detached from its training data: an immutable flat array of coefficients in a
+ * basis, lowest degree first, with the mapping t = scale * x + shift of x into the domain of the basis. It is what
+ * polynomial regressions predict with, so its predictions are exactly theirs, and it can be shared between threads.
+ * @author gorosgobe
+ */
+public final class PolynomialPredictor implements Predictor {
+
+    /** The coefficients in the basis, lowest degree first*/
+    private final double[] coefficients;
+    /** The basis of the coefficients*/
+    private final PolynomialBasis basis;
+    /** The factor of x in the mapping t = scale * x + shift into the domain of the basis*/
+    private final double scale;
+    /** The constant of the mapping t = scale * x + shift into the domain of the basis*/
+    private final double shift;
+
+    /**
+     * Constructs a predictor with the supplied coefficients, which are copied.
+     * @param coefficients the coefficients in the basis, lowest degree first
+     * @param basis the basis of the coefficients
+     * @param scale the factor of x in the mapping into the domain of the basis
+     * @param shift the constant of the mapping into the domain of the basis
+     */
+    public PolynomialPredictor(double[] coefficients, PolynomialBasis basis, double scale, double shift) {
+        if (coefficients.length == 0) {
+            throw new IllegalArgumentException("A polynomial has at least one coefficient");
+        }
+
+        this.coefficients = coefficients.clone();
+        this.basis = basis;
+        this.scale = scale;
+        this.shift = shift;
+    }
+
+    /**
+     * Gets a prediction given a single independent variable, x.
+     * @param independentVars the independent variable
+     * @return the prediction of the model
+     */
+    @Override
+    public double getPrediction(double... independentVars) {
+        if (independentVars.length != 1) {
+            throw new IllegalArgumentException("Model predicts from a single independent variable");
+        }
+
+        return getPrediction(independentVars[0]);
+    }
+
+    /**
+     * Gets a prediction for the given value.
+     * @param value the value (x) we want to get a prediction for
+     * @return the predicted value for the supplied argument according to the model
+     */
+    public double getPrediction(double value) {
+        if (basis != PolynomialBasis.MONOMIAL) {
+            return basis.evaluate(coefficients, scale * value + shift);
+        }
+
+        double[] c = coefficients;
+
+        //Horner's scheme, a multiplication and an addition per coefficient
+        double result = c[c.length - 1];
+        for (int i = c.length - 2; i >= 0; i--) {
+            result = result * value + c[i];
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets the predictions for every value of the supplied array, according to the model.
+     * @param values the values (xs) we want to get predictions for
+     * @param predictions the array the predictions are written to, which may be <em>values</em> itself
+     */
+    public void predict(double[] values, double[] predictions) {
+        if (predictions.length < values.length) {
+            throw new IllegalArgumentException("Predictions array must have room for every value");
+        }
+
+        predict(values, 0, predictions, 0, values.length);
+    }
+
+    /**
+     * Gets the predictions for the supplied range of values, according to the model. Nothing is allocated, and
+     * each prediction is exactly the one returned by <em>getPrediction</em>.
+     * @param values the values (xs) we want to get predictions for
+     * @param valuesOffset the index of the first value
+     * @param predictions the array the predictions are written to, which may be <em>values</em> itself
+     * @param predictionsOffset the index the first prediction is written to
+     * @param length the number of values to predict
+     */
+    public void predict(double[] values, int valuesOffset, double[] predictions, int predictionsOffset, int length) {
+        if (valuesOffset < 0 || predictionsOffset < 0 || length < 0 || valuesOffset + length > values.length
+                || predictionsOffset + length > predictions.length) {
+            throw new IndexOutOfBoundsException("Range is not within the arrays");
+        }
+
+        if (basis != PolynomialBasis.MONOMIAL) {
+            for (int i = 0; i < length; i++) {
+                predictions[predictionsOffset + i] = getPrediction(values[valuesOffset + i]);
+            }
+            return;
+        }
+
+        double[] c = coefficients;
+        int last = c.length - 1;
+        int i = 0;
+
+        //four independent Horner chains at a time, so their multiplications and additions overlap in the pipeline
+        for (; i + 3 < length; i += 4) {
+            double x0 = values[valuesOffset + i];
+            double x1 = values[valuesOffset + i + 1];
+            double x2 = values[valuesOffset + i + 2];
+            double x3 = values[valuesOffset + i + 3];
+            double r0 = c[last];
+            double r1 = r0;
+            double r2 = r0;
+            double r3 = r0;
+
+            for (int k = last - 1; k >= 0; k--) {
+                double coefficient = c[k];
+                r0 = r0 * x0 + coefficient;
+                r1 = r1 * x1 + coefficient;
+                r2 = r2 * x2 + coefficient;
+                r3 = r3 * x3 + coefficient;
+            }
+
+            predictions[predictionsOffset + i] = r0;
+            predictions[predictionsOffset + i + 1] = r1;
+            predictions[predictionsOffset + i + 2] = r2;
+            predictions[predictionsOffset + i + 3] = r3;
+        }
+
+        for (; i < length; i++) {
+            double x = values[valuesOffset + i];
+            double result = c[last];
+            for (int k = last - 1; k >= 0; k--) {
+                result = result * x + c[k];
+            }
+            predictions[predictionsOffset + i] = result;
+        }
+    }
+
+    /**
+     * Gets the coefficients of the polynomial.
+     * @return a copy of the coefficients in the basis, lowest degree first
+     */
+    public double[] getCoefficients() {
+        return coefficients.clone();
+    }
+
+    /**
+     * Gets the basis of the coefficients.
+     * @return the basis of the coefficients
+     */
+    public PolynomialBasis getBasis() {
+        return basis;
+    }
+
+    /**
+     * Gets the mapping t = scale * x + shift of x into the domain of the basis.
+     * @return the scale and the shift of the mapping
+     */
+    public double[] getMapping() {
+        return new double[] {scale, shift};
+    }
+
+    /**
+     * Gets the degree of the polynomial.
+     * @return the polynomial degree
+     */
+    public int getPolynomialDegree() {
+        return coefficients.length - 1;
+    }
+
+    /**
+     * Gets the number of independent variables the model predicts from, always 1.
+     * @return the number of independent variables
+     */
+    @Override
+    public int getNumberOfIndependentVariables() {
+        return 1;
+    }
+}
@@ -1,30 +1,41 @@
 package polynomialRegression;
 
 
-import Utils.MatrixUtils;
+import Utils.ColumnarDataset;
+import Utils.DenseMatrix;
 import Utils.Point;
 import Utils.QRDecomposition;
+import Utils.RegressionDiagnostics;
+import Utils.TSQRDecomposition;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.nio.DoubleBuffer;
 import java.util.*;
-import java.util.stream.IntStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
-import static Utils.QRDecomposition.solveByBackSubstitution;
 
 /**
- * Class representing a polynomial regression on the supplied training data. Allows efficient multithreaded computation
+ * Class representing a polynomial regression on the supplied training data. Allows efficient computation
  * of optimal polynomial degree for trained data and supplied test data
  * @author gorosgobe
  */
 public class PolynomialRegression {
 
-    /** List of points representing the training data*/
-    private final List<Point> points;
+    /** Dataset holding the training data by columns*/
+    private final ColumnarDataset dataset;
     /** Desired polynomial degree for the regression*/
     private final int polynomialDegree;
-    /** Matrix representing the computed coefficients*/
-    private double[][] coefficients;
+    /** The immutable predictor with the computed coefficients, used to evaluate predictions*/
+    private final PolynomialPredictor predictor;
+    /** The basis the regression is fitted in*/
+    private final PolynomialBasis basis;
+    /** The factor of x in the mapping t = scale * x + shift into the domain of the basis*/
+    private final double scale;
+    /** The constant of the mapping t = scale * x + shift into the domain of the basis*/
+    private final double shift;
 
     /*
     Parameter column vector beta = (XTX)-1XTy where X is the design matrix.
@@ -37,38 +48,164 @@ public class PolynomialRegression {
      * @param polynomialDegree the desired degree of the polynomial regression
      */
     public PolynomialRegression(List<Point> points, int polynomialDegree) {
-        this.points = points;
-        if (polynomialDegree < 0) {
-            throw new IllegalArgumentException("Polynomial degree should be >= 0");
-        }
-        this.polynomialDegree = polynomialDegree;
-        computeCoefficients();
+        this(ColumnarDataset.fromPoints(points), polynomialDegree, PolynomialBasis.MONOMIAL);
     }
 
     /**
-     * Constructor of a polynomial regression.
+     * Constructor of a polynomial regression fitted in the supplied basis. The orthogonal bases keep fits of high degree
+     * well conditioned.
      * @param points the training data
      * @param polynomialDegree the desired degree of the polynomial regression
-     * @param computeCoeff should coefficients be computed
+     * @param basis the basis to fit the polynomial in
+     */
+    public PolynomialRegression(List<Point> points, int polynomialDegree, PolynomialBasis basis) {
+        this(ColumnarDataset.fromPoints(points), polynomialDegree, basis);
+    }
+
+    /**
+     * Constructor of a polynomial regression from a columnar dataset with a single independent variable. The dataset is
+     * not copied.
+     * @param dataset the training data
+     * @param polynomialDegree the desired degree of the polynomial regression
+     */
+    public PolynomialRegression(ColumnarDataset dataset, int polynomialDegree) {
+        this(dataset, polynomialDegree, PolynomialBasis.MONOMIAL);
+    }
+
+    /**
+     * Constructor of a polynomial regression fitted in the supplied basis, from a columnar dataset with a single
+     * independent variable. The dataset is not copied.
+     * @param dataset the training data
+     * @param polynomialDegree the desired degree of the polynomial regression
+     * @param basis the basis to fit the polynomial in
      */
-    private PolynomialRegression(List<Point> points, int polynomialDegree, boolean computeCoeff) {
-        this.points = points;
+    public PolynomialRegression(ColumnarDataset dataset, int polynomialDegree, PolynomialBasis basis) {
+        this(dataset, polynomialDegree, basis, null);
+    }
+
+    /**
+     * Constructor of a polynomial regression.
+     * @param dataset the training data
+     * @param polynomialDegree the desired degree of the polynomial regression
+     * @param basis the basis to fit the polynomial in
+     * @param coefficients the coefficients already computed in the basis, or null to compute them
+     */
+    private PolynomialRegression(ColumnarDataset dataset, int polynomialDegree, PolynomialBasis basis,
+                                 double[] coefficients) {
+        if (dataset.getNumberOfIndependentVariables() != 1) {
+            throw new IllegalArgumentException("Points must have a single independent variable");
+        }
+
+        this.dataset = dataset;
         if (polynomialDegree < 0) {
             throw new IllegalArgumentException("Polynomial degree should be >= 0");
         }
 
         this.polynomialDegree = polynomialDegree;
-        if (computeCoeff) {
-          computeCoefficients();
+        this.basis = basis;
+        double[] mapping = computeMapping(basis, dataset);
+        this.scale = mapping[0];
+        this.shift = mapping[1];
+        //every field is final, so a regression is safely published to other threads once constructed
+        this.predictor = new PolynomialPredictor(coefficients == null ? computeCoefficients() : coefficients, basis,
+                scale, shift);
+    }
+
+    /**
+     * Constructor of a polynomial regression with coefficients already computed on the training data, such as those of a
+     * <em>PolynomialDegreeSweep</em>.
+     * @param dataset the training data
+     * @param coefficients the coefficients in the supplied basis, lowest degree first
+     * @param basis the basis the coefficients are in
+     */
+    PolynomialRegression(ColumnarDataset dataset, double[] coefficients, PolynomialBasis basis) {
+        this(dataset, coefficients.length - 1, basis, coefficients);
+    }
+
+    /**
+     * Computes the linear mapping t = scale * x + shift taking the range of the training xs into [-1, 1] for the bases
+     * that are mapped, and the identity for the monomial basis.
+     * @param basis the basis of the regression
+     * @param dataset the training data
+     * @return the scale and the shift of the mapping
+     */
+    static double[] computeMapping(PolynomialBasis basis, ColumnarDataset dataset) {
+        if (!basis.isMapped() || dataset.size() == 0) {
+            return new double[] {1.0, 0.0};
+        }
+
+        DoubleBuffer xs = dataset.getXColumn(0);
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < xs.limit(); i++) {
+            min = Math.min(min, xs.get(i));
+            max = Math.max(max, xs.get(i));
+        }
+
+        return mappingOfRange(min, max);
+    }
+
+    /**
+     * Computes the linear mapping t = scale * x + shift taking the range of the supplied training xs into [-1, 1] for the
+     * bases that are mapped, and the identity for the monomial basis.
+     * @param basis the basis of the regression
+     * @param xs the xs of the training data
+     * @return the scale and the shift of the mapping
+     */
+    static double[] computeMapping(PolynomialBasis basis, double[] xs) {
+        if (!basis.isMapped() || xs.length == 0) {
+            return new double[] {1.0, 0.0};
+        }
+
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double x : xs) {
+            min = Math.min(min, x);
+            max = Math.max(max, x);
+        }
+
+        return mappingOfRange(min, max);
+    }
+
+    /**
+     * Computes the linear mapping taking [min, max] into [-1, 1], or a shift to 0 if the range is a single value.
+     * @param min the lowest training x
+     * @param max the highest training x
+     * @return the scale and the shift of the mapping
+     */
+    private static double[] mappingOfRange(double min, double max) {
+        if (max == min) {
+            return new double[] {1.0, -min};
         }
+
+        return new double[] {2.0 / (max - min), -(max + min) / (max - min)};
     }
 
     /**
-     * Gets the training data
-     * @return a list containing the training data as Points
+     * Gets the training data, built as a new list of Points from the stored columns. Every call allocates a copy of the
+     * training data, so callers should keep the list rather than call this method repeatedly, or use <em>getDataset</em>.
+     * @return a new list containing the training data as Points
      */
     public List<Point> getPoints() {
-        return points;
+        return dataset.toPoints();
+    }
+
+    /**
+     * Computes the leave-one-out and influence diagnostics of the regression on its training data, in closed form from a
+     * QR decomposition of the design matrix instead of one refit per point.
+     * @return the diagnostics of the regression, with the coefficients in the basis of the regression
+     */
+    public RegressionDiagnostics getDiagnostics() {
+        //the design matrix is only built to be decomposed, so it is factorized in place
+        return new RegressionDiagnostics(new QRDecomposition(generateDesignMatrix(), true), generateResponseVector());
+    }
+
+    /**
+     * Gets the training data as stored by the regression.
+     * @return the columnar dataset with the training data
+     */
+    public ColumnarDataset getDataset() {
+        return dataset;
     }
 
     /**
@@ -80,60 +217,113 @@ public class PolynomialRegression {
     }
 
     /**
-     * Gets the coefficients of the polynomial regression. Will return null if the coefficients havent been computed yet.
-     * @return the coefficient matrix.
+     * Gets the coefficients of the polynomial regression, in its basis. For the monomial basis these are the coefficients
+     * of the powers of x, for the other bases they multiply the polynomials of the basis at the mapped x.
+     * @return a new coefficient matrix, lowest degree first.
      */
     public double[][] getCoefficients() {
+        double[] solution = predictor.getCoefficients();
+        double[][] coefficients = new double[solution.length][1];
+        for (int i = 0; i < solution.length; i++) {
+            coefficients[i][0] = solution[i];
+        }
+
         return coefficients;
     }
 
+    /**
+     * Gets the coefficients of the powers of x of the polynomial regression, converting them from its basis if needed.
+     * Bear in mind that for high degrees the monomial coefficients can lose much of the accuracy of the fit.
+     * @return the coefficients of 1, x, x<sup>2</sup>, ..., lowest degree first
+     */
+    public double[] getMonomialCoefficients() {
+        if (basis == PolynomialBasis.MONOMIAL) {
+            return predictor.getCoefficients();
+        }
+
+        //coefficients of the powers of t, substituted with t = scale * x + shift through Horner's scheme on polynomials
+        double[] inT = basis.toMonomial(predictor.getCoefficients());
+        double[] result = new double[inT.length];
+        result[0] = inT[inT.length - 1];
+
+        for (int k = inT.length - 2; k >= 0; k--) {
+            for (int j = inT.length - 1; j >= 1; j--) {
+                result[j] = result[j] * shift + result[j - 1] * scale;
+            }
+            result[0] = result[0] * shift + inT[k];
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets the basis the polynomial regression is fitted in.
+     * @return the basis of the regression
+     */
+    public PolynomialBasis getBasis() {
+        return basis;
+    }
+
+    /**
+     * Gets the mapping t = scale * x + shift of the xs into the domain of the basis, computed from the training data.
+     * @return the scale and the shift of the mapping, the identity for the monomial basis
+     */
+    public double[] getMapping() {
+        return new double[] {scale, shift};
+    }
+
     /**
      * Generates the design matrix with the training data.
-     * @return the design matrix of the training data supplied in the constructor.
+     * @return the design matrix of the training data supplied in the constructor, contiguous and column-major.
      */
     // Matrix with the x of the points
-    private double[][] generateDesignMatrix() {
+    private DenseMatrix generateDesignMatrix() {
 
         //width is polynomial grade + 1 as column 0 is a column of 1s
-        double[][] designMatrix = new double[points.size()][polynomialDegree + 1];
+        int height = dataset.size();
+        DenseMatrix designMatrix = DenseMatrix.columnMajor(height, polynomialDegree + 1);
 
-        //sets first column to be 1
-        for (int i = 0; i < designMatrix.length; i++) {
-            designMatrix[i][0] = 1;
-        }
-
-        //fills up the matrix with the points
-        for (int i = 0; i < designMatrix.length; i++) {
-            for (int j = 1; j < designMatrix[0].length; j++) {
-                designMatrix[i][j] = Math.pow(points.get(i).getX(), j);
-            }
-        }
+        //fills up the matrix with the polynomials of the basis at the mapped points, column by column
+        basis.fillColumns(generateMappedPoints(), designMatrix.getData(), polynomialDegree + 1);
 
         return designMatrix;
     }
 
     /**
-     * Generates the response matrix with the training data.
-     * @return the response matrix with the training data.
+     * Generates the xs of the training data mapped into the domain of the basis.
+     * @return the mapped xs of the training data
      */
-    //Matrix with the y of the points
-    private double[][] generateResponseMatrix() {
-        double[][] responseMatrix = new double[points.size()][1];
+    private double[] generateMappedPoints() {
+        double[] ts = new double[dataset.size()];
+        dataset.getXColumn(0).get(ts);
 
-        for (int i = 0; i < responseMatrix.length; i++) {
-            responseMatrix[i][0] = points.get(i).getY();
+        if (basis.isMapped()) {
+            for (int i = 0; i < ts.length; i++) {
+                ts[i] = scale * ts[i] + shift;
+            }
         }
 
-        return responseMatrix;
+        return ts;
     }
 
     /**
-     * Computes the coefficients of the polynomial regression and stores them in the <em>coefficients</em> field.
+     * Generates the response vector with the training data.
+     * @return the response vector with the training data.
+     */
+    //Vector with the y of the points
+    private double[] generateResponseVector() {
+        double[] responseVector = new double[dataset.size()];
+        dataset.getYColumn().get(responseVector);
+        return responseVector;
+    }
+
+    /**
+     * Computes the coefficients of the polynomial regression with the training data.
+     * @return the coefficients in the basis, lowest degree first
      * */
-    private void computeCoefficients() {
-        double[][] coefficients;
-        double[][] designMatrix = generateDesignMatrix();
-        double[][] responseMatrix = generateResponseMatrix();
+    private double[] computeCoefficients() {
+        DenseMatrix designMatrix = generateDesignMatrix();
+        double[] responseVector = generateResponseVector();
 
 
         //coefficient matrix is given by the equation described above
@@ -141,11 +331,15 @@ public class PolynomialRegression {
 //        coefficients = MatrixUtils.multiply(MatrixUtils.multiply(MatrixUtils.inverse(
 //                MatrixUtils.multiply(designMatrixTranspose, designMatrix)), designMatrixTranspose), responseMatrix);
 
-        //QR DECOMPOSITION AND BACK SUBSTITUTION
-        QRDecomposition decomp = new QRDecomposition(designMatrix);
-        coefficients = solveByBackSubstitution(decomp.getR(), MatrixUtils.multiply(MatrixUtils.transpose(decomp.getQ()), responseMatrix));
+        //QR DECOMPOSITION AND BACK SUBSTITUTION, applying the reflections of Q directly to the response vector
+        //the design matrix is only built to be decomposed, so it is factorized in place
+        if (designMatrix.getRows() >= TSQRDecomposition.PARALLEL_THRESHOLD) {
+            //very tall design matrices are factorized by blocks of rows in parallel
+            return new TSQRDecomposition(designMatrix, responseVector, true).solve();
+        }
 
-        this.coefficients = coefficients;
+        QRDecomposition decomp = new QRDecomposition(designMatrix, true);
+        return decomp.solve(responseVector);
     }
 
 
@@ -155,113 +349,149 @@ public class PolynomialRegression {
      * @return the predicted value for the supplied argument according to the trained model
      */
     public double getPrediction(double value) {
+        return predictor.getPrediction(value);
+    }
 
-        if (coefficients == null) {
-            computeCoefficients();
-        }
-
-        double result = 0.0;
+    /**
+     * Gets the predictions for every value of the supplied array, according to the trained model.
+     * @param values the values (xs) we want to get predictions for
+     * @param predictions the array the predictions are written to, which may be <em>values</em> itself
+     */
+    public void predict(double[] values, double[] predictions) {
+        predictor.predict(values, predictions);
+    }
 
-        for (double i = 0.0; i < coefficients.length; i++) {
-            result += coefficients[(int) i][0] * Math.pow(value, i);
-        }
+    /**
+     * Gets the predictions for the supplied range of values, according to the trained model. See
+     * <em>PolynomialPredictor.predict(double[], int, double[], int, int)</em>.
+     * @param values the values (xs) we want to get predictions for
+     * @param valuesOffset the index of the first value
+     * @param predictions the array the predictions are written to, which may be <em>values</em> itself
+     * @param predictionsOffset the index the first prediction is written to
+     * @param length the number of values to predict
+     */
+    public void predict(double[] values, int valuesOffset, double[] predictions, int predictionsOffset, int length) {
+        predictor.predict(values, valuesOffset, predictions, predictionsOffset, length);
+    }
 
-        return result;
+    /**
+     * Gets the fitted polynomial detached from the training data, which it does not reference.
+     * @return the immutable predictor of the regression
+     */
+    public PolynomialPredictor toPredictor() {
+        return predictor;
     }
 
     /**
-     * Multithreaded implementation of a method based on Root Mean Square Error (RMSE) comparison to obtain the optimal polynomial
-     * degree that minimises the RMSE error, and therefore improves the accuracy of the trained data, given test data.
+     * Method based on Root Mean Square Error (RMSE) comparison to obtain the optimal polynomial degree that minimises the
+     * RMSE error, and therefore improves the accuracy of the trained data, given test data.
      * @param testData the data we want to optimise the regression for
-     * @param terminalOutput do you want the thread ids, errors, polynomial degrees and elapsed times to be outputted to
-     *                       the standard output?
+     * @param terminalOutput do you want the errors, polynomial degrees and elapsed times to be outputted to the standard
+     *                       output?
      * @return the integer representing the optimal degree for the polynomial regression for the trained data
+     * @throws IllegalStateException if no degree has a finite RMSE on the test data
      * @throws InterruptedException
      */
     public static int getOptimalPolynomialDegreeWithTestData(List<Point> trainingData, List<Point> testData, boolean terminalOutput)
             throws InterruptedException {
-        if (trainingData.isEmpty()) {
-            throw new IllegalArgumentException("Empty training data");
-        }
-
-        if (testData.isEmpty()) {
-            throw new IllegalArgumentException("Empty test data");
-        }
+        return getOptimalPolynomialDegreeWithTestData(ColumnarDataset.fromPoints(trainingData),
+                ColumnarDataset.fromPoints(testData), terminalOutput);
+    }
 
+    /**
+     * Method based on Root Mean Square Error (RMSE) comparison to obtain the optimal polynomial degree that minimises the
+     * RMSE error, and therefore improves the accuracy of the trained data, given test data. Every degree from 0 up to the
+     * number of test points minus 2, and below the number of training points, is fitted in a single
+     * <em>PolynomialDegreeSweep</em>, and the fits are evaluated on the test data as tasks on the common fork/join pool.
+     * The datasets are not copied.
+     * @param trainingData the training data for the regression
+     * @param testData the data we want to optimise the regression for
+     * @param terminalOutput do you want the errors, polynomial degrees and elapsed times to be outputted to the standard
+     *                       output?
+     * @return the integer representing the optimal degree for the polynomial regression for the trained data
+     * @throws IllegalStateException if no degree has a finite RMSE on the test data
+     * @throws InterruptedException
+     */
+    public static int getOptimalPolynomialDegreeWithTestData(ColumnarDataset trainingData, ColumnarDataset testData,
+                                                             boolean terminalOutput) throws InterruptedException {
         long startTime = System.nanoTime();
 
-        //gets max number of threads
-        int threadNum = Runtime.getRuntime().availableProcessors() - 1;
-        //creates an array of threads
-        final Thread[] threads = new Thread[threadNum];
-        //creates an array of polynomial degrees
-        final int[] threadPolyDegrees = new int[threadNum];
-        //creates an array of root mean squared errors
-        final double[] threadRMSE = new double[threadNum];
-        final int[] sequence = new int[testData.size() - 1];
-
-        for (int i = 0; i < testData.size() - 1; i++) {
-            sequence[i] = i;
-        }
-
-        //creates an even distribution of polynomial degrees so each thread does approximately the same amount of work
-        distribute(sequence, threadNum);
-
-        //for every available thread with index: threadIndex
-        IntStream.range(0, threadNum).forEach(threadIndex -> {
-            //create a new thread
-            Thread t = new Thread(() -> {
-                //with a mapping from RSMErrors to polynomial degrees
-                Map<Double, Integer> errorsToDegree = new LinkedHashMap<>();
-
-                for (int i = (sequence.length * threadIndex) / threadNum;
-                     i < (sequence.length * (threadIndex + 1)) / threadNum; i++) {
-
-                    PolynomialRegression regression = new PolynomialRegression(trainingData, sequence[i], true);
-                    double error = regression.getTestDataRootMeanSquareError(testData);
-                    if (terminalOutput) {
-                        System.out.println("Thread: " + threadIndex + ", Degree: " +sequence[i] + ", Error: " + error);
-                    }
-                    errorsToDegree.put(error, sequence[i]);
-
-                }
-
-                //for the degree section corresponding to the thread index, compute the minimum error and get
-                // its polynomial degree
-                threadRMSE[threadIndex] = Collections.min(errorsToDegree.keySet());
-                threadPolyDegrees[threadIndex] = errorsToDegree.get(threadRMSE[threadIndex]);
-
-            });
-
-            threads[threadIndex] = t;
-
-        });
-
-        //start threads
-        for (Thread t : threads) {
-            t.start();
-        }
-        //wait until the last thread to complete its process
-        for (Thread t : threads) {
-            t.join();
-        }
-
-        int minimalDegreeIndex = getIndexOfMinDouble(threadRMSE);
+        DegreeSearchResult result = new PolynomialDegreeSearch(trainingData, testData).search();
 
         long endTime = System.nanoTime();
         if (terminalOutput) {
+            double[] errors = result.getErrors();
+            for (int degree = 0; degree < errors.length; degree++) {
+                System.out.println("Degree: " + degree + ", Error: " + errors[degree]);
+            }
             System.out.println("Time required: " + ((endTime - startTime) / 1000000000.0) + "s");
 
         }
-        return threadPolyDegrees[minimalDegreeIndex];
+        return requireOptimalDegree(result);
+    }
+
+    /**
+     * Searches for the polynomial degree that minimises the RMSE on the test data, running the evaluations on the
+     * supplied executor and stopping once the supplied time elapses. If the deadline is hit, the result holds the best
+     * degree found so far and is not complete.
+     * @param trainingData the training data for the regression
+     * @param testData the data we want to optimise the regression for
+     * @param executor the executor running the evaluations on the test data, which is not shut down
+     * @param timeout the maximum time to search for
+     * @param unit the unit of the timeout
+     * @return the result of the search
+     * @throws InterruptedException if the calling thread is interrupted while searching
+     */
+    public static DegreeSearchResult getOptimalPolynomialDegreeWithTestData(ColumnarDataset trainingData,
+                                                                            ColumnarDataset testData,
+                                                                            ExecutorService executor, long timeout,
+                                                                            TimeUnit unit) throws InterruptedException {
+        return getOptimalPolynomialDegreeWithTestData(trainingData, testData, executor, DegreeSearchStrategy.exhaustive(),
+                timeout, unit);
+    }
+
+    /**
+     * Searches for the polynomial degree that minimises the RMSE on the test data following the supplied strategy, such
+     * as stopping once the test RMSE keeps increasing, running the evaluations on the supplied executor and stopping once
+     * the supplied time elapses.
+     * @param trainingData the training data for the regression
+     * @param testData the data we want to optimise the regression for
+     * @param executor the executor running the evaluations on the test data, which is not shut down
+     * @param strategy the strategy deciding which degrees are evaluated
+     * @param timeout the maximum time to search for
+     * @param unit the unit of the timeout
+     * @return the result of the search
+     * @throws InterruptedException if the calling thread is interrupted while searching
+     */
+    public static DegreeSearchResult getOptimalPolynomialDegreeWithTestData(ColumnarDataset trainingData,
+                                                                            ColumnarDataset testData,
+                                                                            ExecutorService executor,
+                                                                            DegreeSearchStrategy strategy, long timeout,
+                                                                            TimeUnit unit) throws InterruptedException {
+        return new PolynomialDegreeSearch(trainingData, testData, executor, strategy).search(timeout, unit);
     }
 
     /**
-     * Multithreaded implementation of a method based on Root Mean Square Error (RMSE) comparison to obtain the optimal polynomial
-     * degree that minimises the RMSE error, and therefore improves the accuracy of the trained data, given test data.
-     * By default, it prints to terminal the errors, polynomial degrees, the thread ids and the elapsed time.
+     * Selects the polynomial degree with the lowest leave-one-out RMSE on the training data, computed in closed form from
+     * the PRESS statistic of every degree of a single <em>PolynomialDegreeSweep</em>, so no test data is needed.
+     * @param trainingData the training data for the regression
+     * @param maxDegree the highest degree to try, lower than the number of training points
+     * @param basis the basis to fit the polynomials in
+     * @return the result of the selection, whose errors are the leave-one-out RMSE of every degree
+     */
+    public static DegreeSearchResult getOptimalPolynomialDegreeByPress(ColumnarDataset trainingData, int maxDegree,
+                                                                       PolynomialBasis basis) {
+        return new DegreeSearchResult(
+                PolynomialDegreeSweep.leaveOneOutRootMeanSquareErrors(trainingData, maxDegree, basis), true);
+    }
+
+    /**
+     * Method based on Root Mean Square Error (RMSE) comparison to obtain the optimal polynomial degree that minimises the
+     * RMSE error, and therefore improves the accuracy of the trained data, given test data.
+     * By default, it prints to terminal the errors, polynomial degrees and the elapsed time.
      * @param testData the data we want to optimise the regression for
      * @return the integer representing the optimal degree for the polynomial regression for the trained data
+     * @throws IllegalStateException if no degree has a finite RMSE on the test data
      * @throws InterruptedException
      */
     public static int getOptimalPolynomialDegreeWithTestData(List<Point> trainingData, List<Point> testData) throws InterruptedException {
@@ -270,91 +500,51 @@ public class PolynomialRegression {
 
     /**
      * Returns the optimal polynomial regression (with minimised RMSE) for the supplied training data and test data. Also
-     * prints the errors, poly-degrees and time elapsed in the computation. This also includes the thread ids, as this is
-     * a multithreaded implementation. Bear in mind, however, that this method is computationally intensive should a lot
-     * of testing points be supplied.
+     * prints the errors, poly-degrees and time elapsed in the computation if requested.
      * @param trainingData the training data for the regression
      * @param testData the test data to minimise the RMSE error of
-     * @param terminalOutput do you want the thread ids, errors, polynomial degrees and elapsed times to be outputted to
-     *                       the standard output?
+     * @param terminalOutput do you want the errors, polynomial degrees and elapsed times to be outputted to the standard
+     *                       output?
      * @return the optimal Polynomial Regression for the supplied training data and test data
      * @throws InterruptedException
      */
     public static PolynomialRegression getOptimalPolynomialRegression(List<Point> trainingData, List<Point> testData,
                                                                boolean terminalOutput) throws InterruptedException {
         int optimalDegree = getOptimalPolynomialDegreeWithTestData(trainingData, testData, terminalOutput);
-        return new PolynomialRegression(trainingData, optimalDegree);
-    }
-
-    /**
-     * Splits an array into n smaller arrays containing the supplied size. Used in the distribute function that
-     * gives each thread a number of tasks with a similar combined difficulty, so each thread works approximately
-     * the same as the other ones, and therefore minimising the Thread.join() time.
-     * @param items the integer array with the items to split
-     * @param maxSubArraySize the max size of the subarrays
-     * @return a list with the arrays containing the maxSubArraySize. The last array will contain maxSubArraySize items
-     * or the remaining ones if the <em>items</em> array size was not multiple of maxSubArraySize.
-     */
-    private static List<int[]> splitArray(int[] items, int maxSubArraySize) {
-        List<int[]> result = new ArrayList<>();
-
-        if (items == null || items.length == 0) {
-            return result;
-        }
-
-        int from = 0;
-        int to = 0;
-        int slicedItems = 0;
-        while (slicedItems < items.length) {
-            to = from + Math.min(maxSubArraySize, items.length - to);
-            int[] slice = Arrays.copyOfRange(items, from, to);
-            result.add(slice);
-            slicedItems += slice.length;
-            from = to;
-        }
-
-        return result;
+        return new PolynomialRegression(ColumnarDataset.fromPoints(trainingData), optimalDegree);
     }
 
     /**
-     * Distributes the tasks, ordered by ascending difficulty in the supplied int array, by rearranging them so the difficulty
-     * of each thread's work is similar.
-     * @param array the array containing the task ids by order of difficulty.
-     * @param numThreads the number of threads we will be using
+     * Returns the optimal polynomial regression (with minimised RMSE) for the supplied training data and test data,
+     * trying the degrees chosen by the supplied strategy on the common fork/join pool.
+     * @param trainingData the training data for the regression
+     * @param testData the test data to minimise the RMSE error of
+     * @param strategy the strategy deciding which degrees are evaluated
+     * @return the optimal Polynomial Regression for the supplied training data and test data
+     * @throws InterruptedException
      */
-    private static void distribute(int[] array, int numThreads) {
-
-        List<int[]> list = splitArray(array, array.length / numThreads);
-        int count = 0;
-
-        for (int i = 0; i < array.length / numThreads; i++) {
-            for (int j = 0; j < numThreads; j++) {
-                array[count] = list.get(j)[count / numThreads];
-                count++;
-            }
-        }
-
+    public static PolynomialRegression getOptimalPolynomialRegression(List<Point> trainingData, List<Point> testData,
+                                                                      DegreeSearchStrategy strategy)
+            throws InterruptedException {
+        ColumnarDataset training = ColumnarDataset.fromPoints(trainingData);
+        DegreeSearchResult result = new PolynomialDegreeSearch(training, ColumnarDataset.fromPoints(testData),
+                ForkJoinPool.commonPool(), strategy).search();
+        return new PolynomialRegression(training, requireOptimalDegree(result));
     }
 
     /**
-     * Gets the index of the minimum double in the supplied array.
-     * @param doubles an array of doubles
-     * @return the index of the minimum double in the array
+     * Gets the optimal degree found by a search, which must have found one.
+     * @param result the result of the search
+     * @return the optimal degree
+     * @throws IllegalStateException if no degree has a finite RMSE on the test data
      */
-    private static int getIndexOfMinDouble(double[] doubles) {
-
-        double current = Double.MAX_VALUE;
-        int currentIndex = 0;
-
-        for (int i = 0; i < doubles.length; i++) {
-            if (doubles[i] < current) {
-                current = doubles[i];
-                currentIndex = i;
-            }
+    private static int requireOptimalDegree(DegreeSearchResult result) {
+        int optimalDegree = result.getOptimalDegree();
+        if (optimalDegree == -1) {
+            throw new IllegalStateException("No polynomial degree could be evaluated on the test data");
         }
 
-        return currentIndex;
-
+        return optimalDegree;
     }
 
     /**
@@ -362,32 +552,43 @@ public class PolynomialRegression {
      * @return the RSME of the training data.
      */
     public double getTrainingDataRootMeanSquareError() {
-        double meanSquareError =
-                points.stream()
-                        .map(i -> Math.pow(getPrediction(i.getX()) - i.getY(), 2.0))
-                        .reduce(0.0, (a, b) -> a + b) / points.size();
-
-        return Math.sqrt(meanSquareError);
+        return getTestDataRootMeanSquareError(dataset);
     }
 
     /**
-     * Gets the RSME (Root Mean Square Error) of the test data. If the model has not been trained, and so coefficients
-     * are null, the method computes the coefficients.
+     * Gets the RSME (Root Mean Square Error) of the test data.
      * @param testData the test data to compute the RSME from
      * @return the RSME for the supplied test data
      */
     public double getTestDataRootMeanSquareError(List<Point> testData) {
-        //model must be trained
-        if (coefficients == null) {
-            computeCoefficients();
+        double sumOfSquares = 0.0;
+        for (Point point : testData) {
+            double error = getPrediction(point.getX()) - point.getY();
+            sumOfSquares += error * error;
         }
 
-        double meanSquareError =
-                testData.stream()
-                        .map(i -> Math.pow(getPrediction(i.getX()) - i.getY(), 2.0))
-                        .reduce(0.0, (a, b) -> a + b) / testData.size();
+        return Math.sqrt(sumOfSquares / testData.size());
+    }
+
+    /**
+     * Gets the RSME (Root Mean Square Error) of the test data supplied as a columnar dataset. The predictions are
+     * computed in a single batch.
+     * @param testData the test data to compute the RSME from
+     * @return the RSME for the supplied test data
+     */
+    public double getTestDataRootMeanSquareError(ColumnarDataset testData) {
+        double[] predictions = new double[testData.size()];
+        testData.getXColumn(0).get(predictions);
+        predict(predictions, predictions);
+
+        DoubleBuffer ys = testData.getYColumn();
+        double sumOfSquares = 0.0;
+        for (int i = 0; i < predictions.length; i++) {
+            double error = predictions[i] - ys.get(i);
+            sumOfSquares += error * error;
+        }
 
-        return Math.sqrt(meanSquareError);
+        return Math.sqrt(sumOfSquares / predictions.length);
     }
 
     /**
@@ -455,11 +656,14 @@ public class PolynomialRegression {
 //    }
 
     /* EFFICIENCY ANALYSIS WITH DIFFERENT IMPLEMENTATIONS */
+    //measured by hand with System.nanoTime; DegreeSearchBenchmark in the benchmarks module now measures the search
     //with this configuration:
     //naive inverse and naive normal equations: 129.705
     //qr inverse and naive normal equations: 79.82s
     //with qr decomposition and back substitution: 20.8814s
     //with qr decomposition, back substitution and distribution amongst threads: 14.1829s
+    //with a single incremental qr sweep over all degrees: 0.21s
+    //with the sweep and the test errors evaluated on the common fork/join pool: 0.22s on a single core
 
 
 }